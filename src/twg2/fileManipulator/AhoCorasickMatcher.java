@@ -0,0 +1,306 @@
+package twg2.fileManipulator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import twg2.collections.primitiveCollections.IntArrayList;
+
+/** An Aho-Corasick {@link StringMatcher} which finds every occurrence of a set of patterns in a single pass over a string.
+ * Matches of any pattern count as matches, {@link #indexOf(String, int)} returns the leftmost match and replacements
+ * replace the leftmost-longest non-overlapping matches.
+ * Each pattern can optionally have its own replacement, see {@link #replaceAll(String)}
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public final class AhoCorasickMatcher implements StringMatcher {
+	private final String[] patterns;
+	private final String[] replacements;
+	private final int maxLength;
+	/** transitions from the root node, indexed by character */
+	private final int[] rootNext;
+	/** transitions from each node, sorted by character */
+	private final char[][] nodeKeys;
+	private final int[][] nodeNext;
+	private final int[] fail;
+	/** the index of the pattern ending at each node, or -1 */
+	private final int[] output;
+	/** the nearest node along each node's failure chain that has an output, or -1 */
+	private final int[] outputLink;
+
+
+	/**
+	 * @param patterns the non-empty patterns to search for. If a pattern appears more than once, the first occurrence is used
+	 */
+	public AhoCorasickMatcher(List<String> patterns) {
+		this(patterns, null);
+	}
+
+
+	/**
+	 * @param searchReplacements the non-empty patterns to search for and the replacement for each pattern
+	 */
+	public AhoCorasickMatcher(Map<String, String> searchReplacements) {
+		this(new ArrayList<>(searchReplacements.keySet()), new ArrayList<>(searchReplacements.values()));
+	}
+
+
+	/**
+	 * @param patterns the non-empty patterns to search for. If a pattern appears more than once, the first occurrence is used
+	 * @param replacements the replacement for each pattern, used by {@link #replaceAll(String)}. Null allowed
+	 */
+	public AhoCorasickMatcher(List<String> patterns, List<String> replacements) {
+		if(replacements != null && replacements.size() != patterns.size()) {
+			throw new IllegalArgumentException("pattern count (" + patterns.size() + ") does not match replacement count (" + replacements.size() + ")");
+		}
+		this.patterns = patterns.toArray(new String[patterns.size()]);
+		this.replacements = replacements != null ? replacements.toArray(new String[replacements.size()]) : null;
+
+		// build the trie
+		List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+		IntArrayList outputs = new IntArrayList();
+		trie.add(new TreeMap<>());
+		outputs.add(-1);
+		int maxLen = 0;
+		for(int i = 0; i < this.patterns.length; i++) {
+			String pattern = this.patterns[i];
+			if(pattern.length() == 0) {
+				throw new IllegalArgumentException("empty search pattern at index " + i);
+			}
+			maxLen = Math.max(maxLen, pattern.length());
+			int node = 0;
+			for(int k = 0, len = pattern.length(); k < len; k++) {
+				Integer next = trie.get(node).get(pattern.charAt(k));
+				if(next == null) {
+					next = trie.size();
+					trie.add(new TreeMap<>());
+					outputs.add(-1);
+					trie.get(node).put(pattern.charAt(k), next);
+				}
+				node = next;
+			}
+			if(outputs.get(node) < 0) {
+				outputs.set(node, i);
+			}
+		}
+		this.maxLength = maxLen;
+
+		int nodeCount = trie.size();
+		this.rootNext = new int[Character.MAX_VALUE + 1];
+		this.nodeKeys = new char[nodeCount][];
+		this.nodeNext = new int[nodeCount][];
+		this.fail = new int[nodeCount];
+		this.output = outputs.toArray();
+		this.outputLink = new int[nodeCount];
+		for(int i = 0; i < nodeCount; i++) {
+			TreeMap<Character, Integer> children = trie.get(i);
+			char[] keys = new char[children.size()];
+			int[] next = new int[children.size()];
+			int k = 0;
+			for(Map.Entry<Character, Integer> child : children.entrySet()) {
+				keys[k] = child.getKey();
+				next[k] = child.getValue();
+				k++;
+			}
+			this.nodeKeys[i] = keys;
+			this.nodeNext[i] = next;
+		}
+		for(int k = 0; k < nodeKeys[0].length; k++) {
+			this.rootNext[nodeKeys[0][k]] = nodeNext[0][k];
+		}
+
+		// breadth first traversal to link each node to the longest proper suffix of its path which is also in the trie
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		this.outputLink[0] = -1;
+		for(int child : nodeNext[0]) {
+			this.fail[child] = 0;
+			this.outputLink[child] = -1;
+			queue.add(child);
+		}
+		while(!queue.isEmpty()) {
+			int node = queue.poll();
+			char[] keys = nodeKeys[node];
+			int[] next = nodeNext[node];
+			for(int k = 0; k < keys.length; k++) {
+				int child = next[k];
+				int f = fail[node];
+				int failNext;
+				while((failNext = childOf(f, keys[k])) < 0 && f != 0) {
+					f = fail[f];
+				}
+				int failNode = failNext > -1 ? failNext : 0;
+				this.fail[child] = failNode;
+				this.outputLink[child] = output[failNode] > -1 ? failNode : outputLink[failNode];
+				queue.add(child);
+			}
+		}
+	}
+
+
+	public int getPatternCount() {
+		return patterns.length;
+	}
+
+
+	public String getPattern(int index) {
+		return patterns[index];
+	}
+
+
+	@Override
+	public boolean test(String str) {
+		int state = 0;
+		for(int i = 0, size = str.length(); i < size; i++) {
+			state = step(state, str.charAt(i));
+			if(output[state] > -1 || outputLink[state] > -1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	@Override
+	public int indexOf(String str, int fromIndex) {
+		int best = -1;
+		int state = 0;
+		for(int i = Math.max(fromIndex, 0), size = str.length(); i < size; i++) {
+			// matches ending at or after 'i' cannot start before the best match found so far
+			if(best > -1 && i - maxLength >= best) {
+				break;
+			}
+			state = step(state, str.charAt(i));
+			for(int node = output[state] > -1 ? state : outputLink[state]; node > -1; node = outputLink[node]) {
+				int start = i + 1 - patterns[output[node]].length();
+				if(best < 0 || start < best) {
+					best = start;
+				}
+			}
+		}
+		return best;
+	}
+
+
+	/** Find which patterns occur in a string
+	 * @param str the string to search
+	 * @param found flags indexed by pattern index, set to true for each pattern found and not already flagged
+	 * @param foundIndices the index of each newly flagged pattern is added to this list
+	 * @return true if any pattern occurs in {@code str}
+	 */
+	public boolean findPatterns(String str, boolean[] found, IntArrayList foundIndices) {
+		boolean any = false;
+		int state = 0;
+		for(int i = 0, size = str.length(); i < size; i++) {
+			state = step(state, str.charAt(i));
+			for(int node = output[state] > -1 ? state : outputLink[state]; node > -1; node = outputLink[node]) {
+				int patternIdx = output[node];
+				any = true;
+				if(!found[patternIdx]) {
+					found[patternIdx] = true;
+					foundIndices.add(patternIdx);
+				}
+			}
+		}
+		return any;
+	}
+
+
+	/** Replace the leftmost-longest non-overlapping matches in a string with {@code replacement}
+	 */
+	@Override
+	public String replaceAll(String str, String replacement) {
+		return replace(str, replacement);
+	}
+
+
+	/** Replace the leftmost-longest non-overlapping matches in a string with each matching pattern's replacement
+	 * @throws IllegalStateException if this matcher was not created with replacements
+	 */
+	public String replaceAll(String str) {
+		if(replacements == null) {
+			throw new IllegalStateException("no replacements provided for this matcher's patterns");
+		}
+		return replace(str, null);
+	}
+
+
+	@Override
+	public String getLiteral() {
+		return null;
+	}
+
+
+	@Override
+	public String toString() {
+		return "AhoCorasickMatcher(" + Arrays.toString(patterns) + ")";
+	}
+
+
+	private String replace(String str, String replacement) {
+		int size = str.length();
+		// 1 + the index of the longest pattern starting at each index of 'str'
+		int[] longestAt = null;
+		int state = 0;
+		for(int i = 0; i < size; i++) {
+			state = step(state, str.charAt(i));
+			for(int node = output[state] > -1 ? state : outputLink[state]; node > -1; node = outputLink[node]) {
+				int patternIdx = output[node];
+				int start = i + 1 - patterns[patternIdx].length();
+				if(longestAt == null) {
+					longestAt = new int[size];
+				}
+				int prevIdx = longestAt[start] - 1;
+				if(prevIdx < 0 || patterns[patternIdx].length() > patterns[prevIdx].length()) {
+					longestAt[start] = patternIdx + 1;
+				}
+			}
+		}
+
+		if(longestAt == null) {
+			return str;
+		}
+
+		StringBuilder sb = new StringBuilder(size);
+		int copyStart = 0;
+		for(int i = 0; i < size; ) {
+			int patternIdx = longestAt[i] - 1;
+			if(patternIdx > -1) {
+				sb.append(str, copyStart, i);
+				sb.append(replacement != null ? replacement : replacements[patternIdx]);
+				i += patterns[patternIdx].length();
+				copyStart = i;
+			}
+			else {
+				i++;
+			}
+		}
+		sb.append(str, copyStart, size);
+		return sb.toString();
+	}
+
+
+	private int step(int state, char ch) {
+		while(state != 0) {
+			int next = childOf(state, ch);
+			if(next > -1) {
+				return next;
+			}
+			state = fail[state];
+		}
+		return rootNext[ch];
+	}
+
+
+	private int childOf(int node, char ch) {
+		if(node == 0) {
+			int next = rootNext[ch];
+			return next != 0 ? next : -1;
+		}
+		int idx = Arrays.binarySearch(nodeKeys[node], ch);
+		return idx > -1 ? nodeNext[node][idx] : -1;
+	}
+
+}
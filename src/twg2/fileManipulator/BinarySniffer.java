@@ -0,0 +1,156 @@
+package twg2.fileManipulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Detects binary files by reading only the start of each file, so that binary files can be skipped before they are read and decoded.
+ * A file is binary if it starts with a known binary file signature, or, for charsets which encode ASCII as single bytes, if its first
+ * {@link #SNIFF_LENGTH} bytes contain a NUL byte or more than {@link #MAX_INVALID_PERCENT} percent of the bytes are control
+ * characters or invalid UTF-8 sequences (when the charset is UTF-8)
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class BinarySniffer {
+	/** the number of bytes read from the start of each file */
+	static final int SNIFF_LENGTH = 8192;
+	/** the maximum percentage of control characters and invalid UTF-8 bytes allowed in a text file */
+	static final int MAX_INVALID_PERCENT = 10;
+
+	private static final byte[][] SIGNATURES = {
+		{ (byte)0x89, 'P', 'N', 'G' }, // PNG
+		{ 'G', 'I', 'F', '8' }, // GIF
+		{ (byte)0xFF, (byte)0xD8, (byte)0xFF }, // JPEG
+		{ 'P', 'K', 3, 4 }, // ZIP, JAR, DOCX
+		{ 'P', 'K', 5, 6 }, // empty ZIP
+		{ 0x1F, (byte)0x8B }, // GZIP
+		{ 0x7F, 'E', 'L', 'F' }, // ELF
+		{ (byte)0xCA, (byte)0xFE, (byte)0xBA, (byte)0xBE }, // Java class, Mach-O fat binary
+		{ (byte)0xCF, (byte)0xFA, (byte)0xED, (byte)0xFE }, // Mach-O 64-bit
+		{ '%', 'P', 'D', 'F', '-' }, // PDF
+		{ '7', 'z', (byte)0xBC, (byte)0xAF, 0x27, 0x1C }, // 7-Zip
+		{ 'R', 'a', 'r', '!', 0x1A, 0x07 }, // RAR
+		{ 'O', 'g', 'g', 'S' }, // OGG
+	};
+
+	private static final ThreadLocal<ByteBuffer> sniffBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(SNIFF_LENGTH));
+
+
+	private BinarySniffer() { throw new AssertionError("cannot instantiate static class BinarySniffer"); }
+
+
+	/** Check whether a file is binary by reading up to {@link #SNIFF_LENGTH} bytes from the start of the file
+	 * @param file the file to check
+	 * @param cs the charset which text files are expected to be encoded in
+	 * @return true if the file appears to be binary
+	 * @throws IOException if there is an error reading the file
+	 */
+	public static boolean isBinary(Path file, Charset cs) throws IOException {
+		ByteBuffer buf = sniffBuffer.get();
+		buf.clear();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while(buf.hasRemaining() && channel.read(buf) > -1) { }
+		}
+		return isBinary(buf.array(), buf.position(), cs, buf.position() < SNIFF_LENGTH);
+	}
+
+
+	/** Check whether the start of a file's contents is binary
+	 * @param bytes the bytes from the start of the file
+	 * @param len the number of bytes in {@code bytes}
+	 * @param cs the charset which text files are expected to be encoded in
+	 * @param complete true if {@code bytes} contains the entire file, false if a multi-byte character may be cut off at the end
+	 * @return true if the bytes appear to be binary
+	 */
+	static boolean isBinary(byte[] bytes, int len, Charset cs, boolean complete) {
+		for(byte[] signature : SIGNATURES) {
+			if(startsWith(bytes, len, signature)) {
+				return true;
+			}
+		}
+		// NUL and control characters are only meaningful in charsets which are supersets of ASCII
+		if(!isAsciiCompatible(cs)) {
+			return false;
+		}
+
+		boolean utf8 = StandardCharsets.UTF_8.equals(cs);
+		int invalid = 0;
+		for(int i = 0; i < len; i++) {
+			int b = bytes[i] & 0xFF;
+			if(b == 0) {
+				return true;
+			}
+			if(b < 0x20) {
+				// tab, newline, vertical tab, form feed, carriage return, backspace, and escape appear in text files
+				if(b != '\t' && b != '\n' && b != 0x0B && b != '\f' && b != '\r' && b != '\b' && b != 0x1B) {
+					invalid++;
+				}
+			}
+			else if(b == 0x7F) {
+				invalid++;
+			}
+			else if(b > 0x7F && utf8) {
+				int seqLen = utf8SequenceLength(bytes, i, len);
+				if(seqLen > 0) {
+					i += seqLen - 1;
+				}
+				else if(seqLen == 0 || complete) {
+					invalid++;
+				}
+				else {
+					// a valid sequence cut off by the end of the sniffed bytes
+					break;
+				}
+			}
+		}
+		return invalid * 100L > len * (long)MAX_INVALID_PERCENT;
+	}
+
+
+	/**
+	 * @return the length of the valid UTF-8 sequence starting at {@code off}, 0 if the sequence is invalid,
+	 * or -1 if the sequence is valid so far but is cut off by {@code len}
+	 */
+	private static int utf8SequenceLength(byte[] bytes, int off, int len) {
+		int b = bytes[off] & 0xFF;
+		int seqLen;
+		if(b >= 0xC2 && b <= 0xDF) seqLen = 2;
+		else if(b >= 0xE0 && b <= 0xEF) seqLen = 3;
+		else if(b >= 0xF0 && b <= 0xF4) seqLen = 4;
+		else return 0;
+
+		for(int i = 1; i < seqLen; i++) {
+			if(off + i >= len) {
+				return -1;
+			}
+			if((bytes[off + i] & 0xC0) != 0x80) {
+				return 0;
+			}
+		}
+		return seqLen;
+	}
+
+
+	private static boolean isAsciiCompatible(Charset cs) {
+		return StandardCharsets.UTF_8.equals(cs) || StandardCharsets.US_ASCII.equals(cs) || StandardCharsets.ISO_8859_1.equals(cs) ||
+				"\n".getBytes(cs).length == 1;
+	}
+
+
+	private static boolean startsWith(byte[] bytes, int len, byte[] prefix) {
+		if(len < prefix.length) {
+			return false;
+		}
+		for(int i = 0; i < prefix.length; i++) {
+			if(bytes[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,348 @@
+package twg2.fileManipulator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** A list of a file's lines stored as the file's encoded bytes plus the start offset of each line.
+ * The bytes are either a heap array or a direct buffer allocated from an {@link OffHeapArena}.
+ * Lines are decoded each time they are accessed.<br>
+ * Edits are stored in a line level piece table: once the list is modified, each line is a reference to either a line
+ * in the original bytes or to an edited line string, so unmodified lines keep costing only their bytes and one int.
+ * {@link ManipulateLines} rebuilds compact lists with {@link #replaceLines(int[], List, int)} so that the lines it copies keep referencing the original bytes.
+ * Each edited line remembers the original line it replaced, so that its {@link #getNewlineType(int) terminator} is kept.
+ * Only charsets which encode '\r' and '\n' as single bytes that never appear inside other characters'
+ * encodings are supported, see {@link MappedFileSearch#isSupported(Charset)}
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public final class CompactLines extends EditableLines {
+	/** the file's bytes from position 0 to the limit */
+	private final ByteBuffer content;
+	private final Charset cs;
+	/** the start offset of each original line followed by the length of the content */
+	private final int[] lineStarts;
+	private final int lineCount;
+	private final FileFormat format;
+	/** once modified, each line's original line index (if >= 0) or the bitwise complement of its index in 'edits', null until the first modification */
+	private int[] pieces;
+	private int pieceCount;
+	private ArrayList<String> edits;
+	/** for each edited line, the index of the original line whose terminator it keeps, or -1 if the line was inserted */
+	private int[] editSources;
+
+
+	private CompactLines(ByteBuffer content, Charset cs, int[] lineStarts, int lineCount, FileFormat format) {
+		this.content = content;
+		this.cs = cs;
+		this.lineStarts = lineStarts;
+		this.lineCount = lineCount;
+		this.format = format;
+	}
+
+
+	/** Split a file's bytes into lines the same way as {@link LineReader} and detect the file's {@link FileFormat} in the same pass
+	 * @param content the file's bytes, not copied
+	 * @param cs the file's charset, must be {@link MappedFileSearch#isSupported(Charset) supported}
+	 */
+	public static CompactLines read(byte[] content, Charset cs) {
+		return read(ByteBuffer.wrap(content), cs);
+	}
+
+
+	/** Split a file's bytes into lines the same way as {@link LineReader} and detect the file's {@link FileFormat} in the same pass
+	 * @param content the file's bytes from position 0 to the buffer's limit, not copied, the buffer should not be modified afterward
+	 * @param cs the file's charset, must be {@link MappedFileSearch#isSupported(Charset) supported}
+	 */
+	public static CompactLines read(ByteBuffer content, Charset cs) {
+		int size = content.limit();
+		int start = 0;
+		boolean bom = false;
+		if(size >= 3 && StandardCharsets.UTF_8.equals(cs) && content.get(0) == (byte)0xEF && content.get(1) == (byte)0xBB && content.get(2) == (byte)0xBF) {
+			bom = true;
+			start = 3;
+		}
+
+		int[] lineStarts = new int[Math.max(size / 32, 16)];
+		int lineCount = 0;
+		int lfCount = 0;
+		int crlfCount = 0;
+		int crCount = 0;
+		int lineStart = start;
+		for(int i = start; i < size; i++) {
+			byte b = content.get(i);
+			if(b == '\n' || b == '\r') {
+				if(b == '\r' && i + 1 < size && content.get(i + 1) == '\n') {
+					crlfCount++;
+					i++;
+				}
+				else if(b == '\r') {
+					crCount++;
+				}
+				else {
+					lfCount++;
+				}
+				if(lineCount + 1 >= lineStarts.length) {
+					lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+				}
+				lineStarts[lineCount++] = lineStart;
+				lineStart = i + 1;
+			}
+		}
+
+		boolean endsWithNewline = lineStart == size && lineCount > 0;
+		if(lineStart < size) {
+			if(lineCount + 1 >= lineStarts.length) {
+				lineStarts = Arrays.copyOf(lineStarts, lineStarts.length + 2);
+			}
+			lineStarts[lineCount++] = lineStart;
+		}
+		lineStarts[lineCount] = size;
+		if(lineStarts.length > lineCount + 1 + 16) {
+			lineStarts = Arrays.copyOf(lineStarts, lineCount + 1);
+		}
+
+		FileFormat format = FileFormat.fromCounts(lfCount, crlfCount, crCount, endsWithNewline, bom);
+		return new CompactLines(content, cs, lineStarts, lineCount, format);
+	}
+
+
+	public FileFormat getFormat() {
+		return format;
+	}
+
+
+	public Charset getCharset() {
+		return cs;
+	}
+
+
+	/**
+	 * @return true if no lines have been changed, added, or removed, so {@link #getContent()} contains exactly these lines
+	 */
+	public boolean isUnmodified() {
+		return pieces == null;
+	}
+
+
+	/**
+	 * @return a read-only buffer containing the file's original bytes
+	 */
+	public ByteBuffer getContent() {
+		return content.asReadOnlyBuffer();
+	}
+
+
+	/**
+	 * @return true if the file's bytes are stored outside of the Java heap
+	 */
+	public boolean isDirect() {
+		return content.isDirect();
+	}
+
+
+	@Override
+	public String get(int index) {
+		if(index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+		}
+		if(pieces == null) {
+			return decode(index);
+		}
+		int ref = pieces[index];
+		return ref > -1 ? decode(ref) : edits.get(~ref);
+	}
+
+
+	@Override
+	public int size() {
+		return pieces == null ? lineCount : pieceCount;
+	}
+
+
+	/**
+	 * @return the number of edited line strings stored, lines which have not been changed are not included
+	 */
+	public int getEditCount() {
+		return edits != null ? edits.size() : 0;
+	}
+
+
+	@Override
+	public String set(int index, String line) {
+		String prev = get(index);
+		ensurePieces(0);
+		int ref = pieces[index];
+		if(ref > -1) {
+			pieces[index] = addEdit(line, ref);
+		}
+		else {
+			edits.set(~ref, line);
+		}
+		return prev;
+	}
+
+
+	/** Replace all of this list's lines in a single pass.  Lines copied from this list keep referencing the original bytes (or edited line)
+	 * they referenced, and edited lines which are no longer part of the list are discarded
+	 */
+	@Override
+	void replaceLines(int[] sourceLines, List<String> lines, int size) {
+		int[] newPieces = new int[Math.max(size, 16)];
+		ArrayList<String> newEdits = new ArrayList<>();
+		int[] newEditSources = new int[16];
+		for(int i = 0; i < size; i++) {
+			int src = sourceLines[i];
+			String edit;
+			int editSource;
+			if(src < 0) {
+				edit = lines.get(i);
+				editSource = (src < -1 ? originalLine(changedLineSource(src)) : -1);
+			}
+			else {
+				int ref = pieces != null ? pieces[src] : src;
+				if(ref > -1) {
+					newPieces[i] = ref;
+					continue;
+				}
+				edit = edits.get(~ref);
+				editSource = editSources[~ref];
+			}
+			if(newEdits.size() == newEditSources.length) {
+				newEditSources = Arrays.copyOf(newEditSources, newEditSources.length * 2);
+			}
+			newEditSources[newEdits.size()] = editSource;
+			newEdits.add(edit);
+			newPieces[i] = ~(newEdits.size() - 1);
+		}
+		pieces = newPieces;
+		pieceCount = size;
+		edits = newEdits;
+		editSources = newEditSources;
+		modCount++;
+	}
+
+
+	@Override
+	public void add(int index, String line) {
+		if(index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+		}
+		ensurePieces(1);
+		System.arraycopy(pieces, index, pieces, index + 1, pieceCount - index);
+		pieces[index] = addEdit(line, -1);
+		pieceCount++;
+		modCount++;
+	}
+
+
+	@Override
+	public String remove(int index) {
+		String prev = get(index);
+		removeRange(index, index + 1);
+		return prev;
+	}
+
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		ensurePieces(0);
+		System.arraycopy(pieces, toIndex, pieces, fromIndex, pieceCount - toIndex);
+		pieceCount -= toIndex - fromIndex;
+		modCount++;
+	}
+
+
+	@Override
+	public void clear() {
+		pieces = new int[16];
+		pieceCount = 0;
+		edits = new ArrayList<>();
+		editSources = new int[16];
+		modCount++;
+	}
+
+
+	@Override
+	byte getNewlineType(int index) {
+		if(index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+		}
+		int line = originalLine(index);
+		if(line < 0) {
+			return NO_NEWLINE;
+		}
+		int start = lineStarts[line];
+		int end = lineStarts[line + 1];
+		if(end > start && content.get(end - 1) == '\n') {
+			return (end - 1 > start && content.get(end - 2) == '\r') ? CRLF : LF;
+		}
+		if(end > start && content.get(end - 1) == '\r') {
+			return CR;
+		}
+		return NO_NEWLINE;
+	}
+
+
+	/**
+	 * @return the index of the original line that the line at {@code index} is, or was edited from, -1 if the line was inserted
+	 */
+	private int originalLine(int index) {
+		if(pieces == null) {
+			return index;
+		}
+		int ref = pieces[index];
+		return ref > -1 ? ref : editSources[~ref];
+	}
+
+
+	private String decode(int line) {
+		int start = lineStarts[line];
+		int end = lineStarts[line + 1];
+		// strip the line terminator, a '\r' can only be the last content byte of a line if it is part of a '\r\n' terminator or is the terminator
+		if(end > start && content.get(end - 1) == '\n') {
+			end--;
+		}
+		if(end > start && content.get(end - 1) == '\r') {
+			end--;
+		}
+		if(content.hasArray()) {
+			return new String(content.array(), content.arrayOffset() + start, end - start, cs);
+		}
+		byte[] bytes = new byte[end - start];
+		ByteBuffer src = content.duplicate();
+		src.position(start);
+		src.get(bytes);
+		return new String(bytes, cs);
+	}
+
+
+	private int addEdit(String line, int source) {
+		if(edits.size() == editSources.length) {
+			editSources = Arrays.copyOf(editSources, editSources.length * 2);
+		}
+		editSources[edits.size()] = source;
+		edits.add(line);
+		return ~(edits.size() - 1);
+	}
+
+
+	private void ensurePieces(int extra) {
+		if(pieces == null) {
+			pieces = new int[lineCount + Math.max(extra, 16)];
+			for(int i = 0; i < lineCount; i++) {
+				pieces[i] = i;
+			}
+			pieceCount = lineCount;
+			edits = new ArrayList<>();
+			editSources = new int[16];
+		}
+		else if(pieceCount + extra > pieces.length) {
+			pieces = Arrays.copyOf(pieces, Math.max(pieceCount + extra, pieces.length + (pieces.length >> 1)));
+		}
+	}
+
+}
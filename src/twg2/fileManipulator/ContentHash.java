@@ -0,0 +1,82 @@
+package twg2.fileManipulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32C;
+
+/** Computes the length and CRC32C checksum of a file's bytes while they are written,
+ * used to detect whether a modified file's new contents are identical to the contents it was loaded with
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class ContentHash {
+
+	private ContentHash() { throw new AssertionError("cannot instantiate static class ContentHash"); }
+
+
+
+
+	/** A channel which counts and checksums the bytes written to it and passes them on to another channel
+	 * @author TeamworkGuy2
+	 * @since 2026-10-18
+	 */
+	static final class Output implements WritableByteChannel {
+		private final WritableByteChannel channel;
+		private final CRC32C crc = new CRC32C();
+		private long length;
+
+
+		/**
+		 * @param channel the channel to write to
+		 */
+		public Output(WritableByteChannel channel) {
+			this.channel = channel;
+		}
+
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			int off = src.position();
+			int count = channel.write(src);
+			ByteBuffer written = src.duplicate();
+			written.position(off).limit(off + count);
+			crc.update(written);
+			length += count;
+			return count;
+		}
+
+
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+
+
+		public long getLength() {
+			return length;
+		}
+
+
+		public long getHash() {
+			return crc.getValue();
+		}
+
+
+		/**
+		 * @return true if the bytes written to this channel have the same length and checksum as {@code fileInfo}'s
+		 * {@link FileInfo#getContentLength() content}
+		 */
+		public boolean matches(FileInfo fileInfo) {
+			return fileInfo.getContentLength() == length && fileInfo.getContentHash() == crc.getValue();
+		}
+
+	}
+
+}
@@ -0,0 +1,55 @@
+package twg2.fileManipulator;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/** A list of a file's lines which remembers the line terminator each line was read with, so that a file with mixed line
+ * terminators can be saved with each line's original terminator.  The terminator follows a line when {@link ManipulateLines}
+ * moves or edits it: lines set in place keep the terminator of the line they replace, and {@link #replaceLines(int[], List, int)}
+ * rebuilds the list from the index of the line each new line was copied or changed from.  Inserted lines have no terminator
+ * of their own and are saved with the file's {@link FileFormat#getNewline() newline}
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+abstract class EditableLines extends AbstractList<String> implements RandomAccess {
+	/** a line without a terminator of its own, either inserted or the last line of a file which does not end with a newline */
+	static final byte NO_NEWLINE = 0;
+	static final byte LF = 1;
+	static final byte CRLF = 2;
+	static final byte CR = 3;
+	/** the line terminator of each newline type, indexed by type */
+	static final String[] NEWLINES = { null, "\n", "\r\n", "\r" };
+
+
+	/** Replace all of this list's lines in a single pass
+	 * @param sourceLines for each new line, the index in this list of the line it is a copy of, -1 if the line is new, or
+	 * {@link #changedLine(int)} of the index of the line it was changed from if the line keeps that line's terminator but has new text
+	 * @param lines the new lines, only lines whose {@code sourceLines} value is negative are read from this list, so other elements may be null.
+	 * Null allowed if every {@code sourceLines} value is an index into this list
+	 * @param size the number of new lines
+	 */
+	abstract void replaceLines(int[] sourceLines, List<String> lines, int size);
+
+
+	/**
+	 * @return the type of line terminator the line at {@code index} was read with, one of {@link #NO_NEWLINE},
+	 * {@link #LF}, {@link #CRLF}, or {@link #CR}
+	 */
+	abstract byte getNewlineType(int index);
+
+
+	/** Encode a {@link #replaceLines(int[], List, int)} source line index for a line with new text which keeps the terminator of line {@code index}
+	 */
+	static int changedLine(int index) {
+		return -2 - index;
+	}
+
+
+	/** Decode a {@link #changedLine(int)} source line index
+	 */
+	static int changedLineSource(int sourceLine) {
+		return -2 - sourceLine;
+	}
+
+}
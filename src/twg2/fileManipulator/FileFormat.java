@@ -0,0 +1,72 @@
+package twg2.fileManipulator;
+
+/** The line terminator, trailing newline, and byte order mark details of a text file, detected when the file is
+ * read so that saving the file reproduces them
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public final class FileFormat {
+	private final String newline;
+	private final boolean endsWithNewline;
+	private final boolean bom;
+
+
+	/**
+	 * @param newline the file's line terminator, the most common one if the file contains more than one kind,
+	 * in which case each line is saved with its own terminator and this terminator is used for inserted lines.
+	 * Null if the file does not contain any line terminators
+	 * @param endsWithNewline whether the last line of the file is followed by a line terminator
+	 * @param bom whether the file starts with a byte order mark
+	 */
+	public FileFormat(String newline, boolean endsWithNewline, boolean bom) {
+		this.newline = newline;
+		this.endsWithNewline = endsWithNewline;
+		this.bom = bom;
+	}
+
+
+	/** Create a format using the most common line terminator, preferring "\r\n", then "\n", then "\r" when counts are tied
+	 * @param lfCount the number of "\n" line terminators
+	 * @param crlfCount the number of "\r\n" line terminators
+	 * @param crCount the number of "\r" line terminators
+	 */
+	static FileFormat fromCounts(int lfCount, int crlfCount, int crCount, boolean endsWithNewline, boolean bom) {
+		String newline = null;
+		if(crlfCount > 0 && crlfCount >= lfCount && crlfCount >= crCount) {
+			newline = "\r\n";
+		}
+		else if(lfCount > 0 && lfCount >= crCount) {
+			newline = "\n";
+		}
+		else if(crCount > 0) {
+			newline = "\r";
+		}
+		return new FileFormat(newline, endsWithNewline, bom);
+	}
+
+
+	/**
+	 * @return the file's line terminator ("\n", "\r\n", or "\r"), or null if the file did not contain any line terminators
+	 */
+	public String getNewline() {
+		return newline;
+	}
+
+
+	public boolean isEndsWithNewline() {
+		return endsWithNewline;
+	}
+
+
+	public boolean hasBom() {
+		return bom;
+	}
+
+
+	@Override
+	public String toString() {
+		String nl = newline != null ? newline.replace("\r", "\\r").replace("\n", "\\n") : null;
+		return "newline=" + nl + ", endsWithNewline=" + endsWithNewline + ", bom=" + bom;
+	}
+
+}
@@ -1,16 +1,33 @@
 package twg2.fileManipulator;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.Charset;
 import java.util.List;
 
+import twg2.fileManipulator.FileLoadSettings.LineStorage;
+
 /** A file data container
  * @author TeamworkGuy2
  * @since 2014-10-16
  */
 public class FileInfo {
 	private final File file;
-	private boolean linesModified;
-	private List<String> lines;
+	private volatile boolean linesModified;
+	/** the file's lines, null if they have not been loaded yet or if they are only softly referenced by {@link #softLines} */
+	private volatile List<String> lines;
+	/** the lines of an evictable file which is not modified, the garbage collector may clear this reference under memory pressure */
+	private volatile SoftReference<List<String>> softLines;
+	private volatile FileFormat format;
+	private long contentLength;
+	private long contentHash;
+	private long lastModified;
+	/** the charset to read the file's lines with when they are accessed, null if the lines were provided when this file info was created */
+	private final Charset cs;
+	private final LineStorage lineStorage;
+	private final boolean evictable;
 
 
 	/**
@@ -18,9 +35,73 @@ public class FileInfo {
 	 * @param lines
 	 */
 	public FileInfo(File file, List<String> lines) {
+		this(file, lines, null);
+	}
+
+
+	/**
+	 * @param file
+	 * @param lines
+	 * @param format the line terminator and byte order mark format detected when the file was read, null if unknown
+	 */
+	public FileInfo(File file, List<String> lines, FileFormat format) {
+		this(file, lines, format, -1, 0);
+	}
+
+
+	/**
+	 * @param file
+	 * @param lines
+	 * @param format the line terminator and byte order mark format detected when the file was read, null if unknown
+	 * @param contentLength the length in bytes of the file when it was read, -1 if unknown
+	 * @param contentHash the CRC32C checksum of the file's bytes when it was read
+	 */
+	public FileInfo(File file, List<String> lines, FileFormat format, long contentLength, long contentHash) {
+		this(file, lines, format, contentLength, contentHash, 0, null, null, false);
+	}
+
+
+	/** Create a file info whose lines are read the first time they are accessed
+	 * @param file
+	 * @param cs the charset to read the file with
+	 * @param lineStorage how to store the file's lines once they are read
+	 * @param contentLength the length in bytes of the file's contents, -1 if unknown
+	 * @param contentHash the CRC32C checksum of the file's contents
+	 * @param lastModified the file's last modified time in milliseconds, 0 if unknown
+	 */
+	public FileInfo(File file, Charset cs, LineStorage lineStorage, long contentLength, long contentHash, long lastModified) {
+		this(file, cs, lineStorage, contentLength, contentHash, lastModified, false);
+	}
+
+
+	/** Create a file info whose lines are read the first time they are accessed
+	 * @param file
+	 * @param cs the charset to read the file with
+	 * @param lineStorage how to store the file's lines once they are read
+	 * @param contentLength the length in bytes of the file's contents, -1 if unknown
+	 * @param contentHash the CRC32C checksum of the file's contents
+	 * @param lastModified the file's last modified time in milliseconds, 0 if unknown
+	 * @param evictable true to only keep a soft reference to the file's lines while they are not
+	 * {@link #isLinesModified() modified}, so that the garbage collector can discard them when memory is low.
+	 * Discarded lines are read from the file again the next time they are accessed
+	 */
+	public FileInfo(File file, Charset cs, LineStorage lineStorage, long contentLength, long contentHash, long lastModified, boolean evictable) {
+		this(file, null, null, contentLength, contentHash, lastModified, cs, lineStorage, evictable);
+	}
+
+
+	private FileInfo(File file, List<String> lines, FileFormat format, long contentLength, long contentHash, long lastModified,
+			Charset cs, LineStorage lineStorage, boolean evictable) {
 		this.file = file;
 		this.linesModified = false;
 		this.lines = lines;
+		this.format = format;
+		this.contentLength = contentLength;
+		this.contentHash = contentHash;
+		this.lastModified = lastModified;
+		this.cs = cs;
+		this.lineStorage = lineStorage;
+		this.evictable = evictable;
 	}
 
 
@@ -30,10 +111,86 @@ public class FileInfo {
 
 
 	/**
-	 * @return a mutable set of lines representing the file's contents
+	 * @return a mutable set of lines representing the file's contents, read from the file if they have not been loaded yet.
+	 * The lines of an {@link #isEvictable() evictable} file must be {@link #setLinesModified(boolean) marked modified}
+	 * while the returned list is still referenced, otherwise changes to the list may be discarded
+	 * @throws UncheckedIOException if there is an error reading the file's lines
 	 */
 	public List<String> getLines() {
-		return lines;
+		List<String> res = lines;
+		if(res == null && cs != null) {
+			res = load();
+		}
+		return res;
+	}
+
+
+	/**
+	 * @return the format detected when the file was read, used to save the file in the same format. Null if unknown
+	 * @throws UncheckedIOException if there is an error reading the file's lines
+	 */
+	public FileFormat getFormat() {
+		if(format == null && cs != null) {
+			load();
+		}
+		return format;
+	}
+
+
+	/**
+	 * @return true if this file's lines are in memory, false if they will be read the first time they are accessed
+	 */
+	public boolean isLoaded() {
+		SoftReference<List<String>> soft;
+		return lines != null || cs == null || ((soft = softLines) != null && soft.get() != null);
+	}
+
+
+	/**
+	 * @return true if this file's lines are only softly referenced while they are not modified
+	 * @see #FileInfo(File, Charset, LineStorage, long, long, long, boolean)
+	 */
+	public boolean isEvictable() {
+		return evictable;
+	}
+
+
+	/**
+	 * @return the length in bytes of the file's contents when it was last read or saved, -1 if unknown
+	 */
+	public long getContentLength() {
+		return contentLength;
+	}
+
+
+	/**
+	 * @return the CRC32C checksum of the file's contents when it was last read or saved, only valid if {@link #getContentLength()} is not -1
+	 */
+	public long getContentHash() {
+		return contentHash;
+	}
+
+
+	/**
+	 * @return the file's last modified time in milliseconds when it was last read or saved, 0 if unknown
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+
+	public void setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+	}
+
+
+	/** Record the length and checksum of the file's contents, called when the file is saved
+	 * @param contentLength the length in bytes of the file's contents, -1 if unknown
+	 * @param contentHash the CRC32C checksum of the file's contents
+	 */
+	public void setContentHash(long contentLength, long contentHash) {
+		this.contentLength = contentLength;
+		this.contentHash = contentHash;
 	}
 
 
@@ -42,8 +199,57 @@ public class FileInfo {
 	}
 
 
+	/**
+	 * @param linesModified true if the lines have been changed and need to be saved.  The lines of an {@link #isEvictable() evictable}
+	 * file are kept in memory while they are modified and become evictable again once they are marked unmodified
+	 */
 	public void setLinesModified(boolean linesModified) {
-		this.linesModified = linesModified;
+		if(!evictable) {
+			this.linesModified = linesModified;
+			return;
+		}
+		synchronized(this) {
+			this.linesModified = linesModified;
+			if(linesModified) {
+				// pin the lines
+				getLines();
+			}
+			else if(lines != null) {
+				softLines = new SoftReference<>(lines);
+				lines = null;
+			}
+		}
+	}
+
+
+	private synchronized List<String> load() {
+		List<String> res = lines;
+		if(res != null) {
+			return res;
+		}
+		SoftReference<List<String>> soft = softLines;
+		if(soft == null || (res = soft.get()) == null) {
+			FileInfo loaded;
+			try {
+				loaded = FileManipulator.readFile(file, cs, lineStorage);
+			} catch (IOException e) {
+				throw new UncheckedIOException(file.toString(), e);
+			}
+			res = loaded.lines;
+			this.format = loaded.format;
+			this.contentLength = loaded.contentLength;
+			this.contentHash = loaded.contentHash;
+			this.lastModified = loaded.lastModified;
+		}
+
+		if(evictable && !linesModified) {
+			this.softLines = new SoftReference<>(res);
+		}
+		else {
+			this.lines = res;
+			this.softLines = null;
+		}
+		return res;
 	}
 
 
@@ -76,7 +282,7 @@ public class FileInfo {
 
 	@Override
 	public String toString() {
-		return "file=" + file + ", modified=" + linesModified + ", lines=" + lines.toString();
+		return "file=" + file + ", modified=" + linesModified + (format != null ? ", " + format : "") + ", lines=" + (isLoaded() ? getLines() : "(not loaded)");
 	}
 
 }
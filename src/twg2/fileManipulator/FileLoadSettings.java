@@ -0,0 +1,152 @@
+package twg2.fileManipulator;
+
+/** Settings which control how a {@link FileManipulator} loads the files in a folder
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public class FileLoadSettings {
+
+	/** How each file's lines are stored in memory
+	 * @author TeamworkGuy2
+	 * @since 2026-10-18
+	 */
+	public static enum LineStorage {
+		/** one {@link String} per line */
+		STRINGS,
+		/** the file's bytes are kept in a single array along with the offset of each line, lines are decoded
+		 * each time they are accessed and edited lines are stored separately.  Only used for UTF-8, US-ASCII,
+		 * and ISO-8859-1 files, files in other charsets are stored as {@link #STRINGS} */
+		COMPACT,
+		/** the same as {@link #COMPACT}, but the file's bytes are stored in direct buffers outside of the Java heap
+		 * so that large projects do not increase the heap size or garbage collection time.  Direct memory is limited by the
+		 * JVM's '-XX:MaxDirectMemorySize' option, which defaults to the maximum heap size, so it should be raised for projects
+		 * larger than the heap.  Small files share direct buffers which are only released once all of their files are released, see {@link OffHeapArena} */
+		OFF_HEAP;
+	}
+
+
+	private int parallelism = 1;
+	private boolean incremental;
+	private LineStorage lineStorage = LineStorage.STRINGS;
+	private boolean lazy;
+	private boolean evictable;
+	private boolean useIgnoreFiles;
+	private boolean skipBinaryFiles;
+
+
+	public FileLoadSettings() {
+	}
+
+
+	/**
+	 * @param parallelism see {@link #setParallelism(int)}
+	 * @param incremental see {@link #setIncremental(boolean)}
+	 * @param lineStorage see {@link #setLineStorage(LineStorage)}
+	 */
+	public FileLoadSettings(int parallelism, boolean incremental, LineStorage lineStorage) {
+		setParallelism(parallelism);
+		setIncremental(incremental);
+		setLineStorage(lineStorage);
+	}
+
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+
+	/**
+	 * @param parallelism the number of threads to use to walk the root folder, read files, and search them,
+	 * 1 loads and searches files one at a time on the calling thread
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(parallelism, 1);
+	}
+
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+
+	/**
+	 * @param incremental true to keep a snapshot manifest of the loaded files in the root folder so that files which have not changed
+	 * since the manifest was saved are not read until their lines are accessed
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+
+	public LineStorage getLineStorage() {
+		return lineStorage;
+	}
+
+
+	/**
+	 * @param lineStorage how to store each file's lines in memory, null is treated as {@link LineStorage#STRINGS}
+	 */
+	public void setLineStorage(LineStorage lineStorage) {
+		this.lineStorage = lineStorage != null ? lineStorage : LineStorage.STRINGS;
+	}
+
+
+	public boolean isLazy() {
+		return lazy;
+	}
+
+
+	/**
+	 * @param lazy true to only record each file's path while walking the root folder and read its lines the first time they are accessed,
+	 * so that files ruled out by a search index are never read.  The search index must read every file the first time it is built,
+	 * files which have not changed since are matched to the index's cache file by their size and last modified time without being read
+	 */
+	public void setLazy(boolean lazy) {
+		this.lazy = lazy;
+	}
+
+
+	public boolean isEvictable() {
+		return evictable;
+	}
+
+
+	/**
+	 * @param evictable true to only keep soft references to the lines of files which are not modified, so that the garbage collector can
+	 * discard them when memory is low and memory use stays proportional to the files being worked on.  Evicted lines are read again
+	 * when they are next accessed.  Implies {@link #setLazy(boolean) lazy} loading
+	 * @see FileInfo#FileInfo(java.io.File, java.nio.charset.Charset, LineStorage, long, long, long, boolean)
+	 */
+	public void setEvictable(boolean evictable) {
+		this.evictable = evictable;
+	}
+
+
+	public boolean isUseIgnoreFiles() {
+		return useIgnoreFiles;
+	}
+
+
+	/**
+	 * @param useIgnoreFiles true to skip files and folders ignored by the '.gitignore' and '.ignore' files in the root folder and
+	 * its sub-folders, ignored folders are not walked.  '.git' folders are also skipped
+	 */
+	public void setUseIgnoreFiles(boolean useIgnoreFiles) {
+		this.useIgnoreFiles = useIgnoreFiles;
+	}
+
+
+	public boolean isSkipBinaryFiles() {
+		return skipBinaryFiles;
+	}
+
+
+	/**
+	 * @param skipBinaryFiles true to check the first few KB of each file before reading it and skip files which appear to be binary,
+	 * such as images and archives, see {@link BinarySniffer}.  Files which match the snapshot manifest are not checked again
+	 */
+	public void setSkipBinaryFiles(boolean skipBinaryFiles) {
+		this.skipBinaryFiles = skipBinaryFiles;
+	}
+
+}
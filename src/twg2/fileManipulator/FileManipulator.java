@@ -1,24 +1,38 @@
 package twg2.fileManipulator;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
+import java.util.zip.CRC32C;
 
 import twg2.collections.primitiveCollections.IntArrayList;
-import twg2.io.files.FileRecursion;
-import twg2.text.stringUtils.StringReplace;
+import twg2.fileManipulator.FileLoadSettings.LineStorage;
 
 /** A set of methods for manipulating lines of text from multiple files.
  * The file lines can be modified and saved back to the file system.
@@ -26,16 +40,46 @@ import twg2.text.stringUtils.StringReplace;
  * @since 2014-10-16
  */
 public class FileManipulator {
+	/** the maximum number of files searched by a single task when searching files concurrently */
+	static final int SEARCH_BATCH_SIZE = 64;
+	/** the direct buffers which {@link LineStorage#OFF_HEAP} files are loaded into */
+	private static final OffHeapArena offHeapArena = new OffHeapArena();
+	/** files up to this size are read in a single call and decoded in bulk */
+	static final int SMALL_FILE_SIZE = 32 * 1024;
+	/** the size of the per-thread buffers which medium size files are read and decoded through */
+	static final int READ_BUFFER_SIZE = 64 * 1024;
+	private static final ThreadLocal<ByteBuffer> readBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(READ_BUFFER_SIZE));
+	private static final ThreadLocal<CharBuffer> decodeBuffer = ThreadLocal.withInitial(() -> CharBuffer.allocate(READ_BUFFER_SIZE));
+
 	private Map<File, Map<File, FileInfo>> filesByDir;
 	private Map<File, FileInfo> allFiles;
+	private int parallelism;
+	private String newline;
+	private boolean forceNewline;
+	private Path rootFolder;
+	private Predicate<String> pathFilter;
+	private Charset cs;
+	private boolean incremental;
+	private LineStorage lineStorage = LineStorage.STRINGS;
+	private boolean lazy;
+	private boolean evictable;
+	private boolean useIgnoreFiles;
+	private boolean skipBinaryFiles;
+	/** the '.gitignore' and '.ignore' files in the root folder, null if they are not used */
+	private IgnoreFiles ignoreFiles;
+	private TrigramIndex index;
+	private FileWatcher watcher;
 
 
-	/** Create a file manipulator that manipulates all files in the specified folder
+	/** Create a file manipulator that manipulates all files in the specified folder.
+	 * Files are saved using the system line separator
 	 * @param folderFiles a map of folders and files and lines in each file
 	 */
 	public FileManipulator(Map<File, Map<File, List<String>>> folderFiles) {
 		this.filesByDir = new HashMap<>();
 		this.allFiles = new HashMap<>();
+		this.parallelism = 1;
+		this.newline = System.lineSeparator();
 
 		folderFiles.forEach((folder, files) -> {
 			Map<File, FileInfo> fileInfos = this.filesByDir.get(folder);
@@ -63,73 +107,571 @@ public class FileManipulator {
 	 * @param newline the type of newline to use when saving files
 	 */
 	public FileManipulator(Path rootFolder, Predicate<String> pathFilter, Charset cs, String newline) {
-		this.filesByDir = new HashMap<>();
-		this.allFiles = new HashMap<>();
-		// load files from a directory recursively
-		FileRecursion.forEachFileByFolderRecursively(rootFolder.toFile(), (folder, file) -> {
-			String filePathStr = file.toString();
-			// TODO poor workaround for backslashing acting as escape chars in regex, fix once when proper file wild pattern searching is implemented
-			if(pathFilter != null && !pathFilter.test(filePathStr.replace('\\', '/'))) {
-				return;
+		this(rootFolder, pathFilter, cs, newline, 1);
+	}
+
+
+	/** Create a file manipulator that manipulates all files in the specified folder
+	 * @param rootFolder the folder to load files from
+	 * @param pathFilter a filter for the files found in the {@code rootFolder}, the path
+	 * of each file is passed to this filter.  If the filter returns true for a given file path,
+	 * that file is processed by this file manipulator, if false is returned, the file
+	 * is not read or modified. Null allowed.  Must be thread-safe if {@code parallelism} is greater than 1
+	 * @param cs the charset of the files being loaded
+	 * @param newline the type of newline to use when saving files which do not contain any line terminators,
+	 * other files are saved using the line terminator they were loaded with
+	 * @param parallelism the number of threads to use to walk the {@code rootFolder} and read files and
+	 * to {@link #search(String)} them, 1 loads and searches files one at a time on the calling thread
+	 */
+	public FileManipulator(Path rootFolder, Predicate<String> pathFilter, Charset cs, String newline, int parallelism) {
+		this(rootFolder, pathFilter, cs, newline, parallelism, false);
+	}
+
+
+	/** Create a file manipulator that manipulates all files in the specified folder
+	 * @param rootFolder the folder to load files from
+	 * @param pathFilter a filter for the files found in the {@code rootFolder}, see {@link #FileManipulator(Path, Predicate, Charset, String, int)}
+	 * @param cs the charset of the files being loaded
+	 * @param newline the type of newline to use when saving files which do not contain any line terminators
+	 * @param parallelism the number of threads to use to walk the {@code rootFolder}, read, and search files
+	 * @param incremental see {@link FileLoadSettings#setIncremental(boolean)}
+	 * @throws UncheckedIOException if there is an error reading or writing the manifest
+	 */
+	public FileManipulator(Path rootFolder, Predicate<String> pathFilter, Charset cs, String newline, int parallelism, boolean incremental) {
+		this(rootFolder, pathFilter, cs, newline, new FileLoadSettings(parallelism, incremental, LineStorage.STRINGS));
+	}
+
+
+	/** Create a file manipulator that manipulates all files in the specified folder
+	 * @param rootFolder the folder to load files from
+	 * @param pathFilter a filter for the files found in the {@code rootFolder}, see {@link #FileManipulator(Path, Predicate, Charset, String, int)}
+	 * @param cs the charset of the files being loaded
+	 * @param newline the type of newline to use when saving files which do not contain any line terminators
+	 * @param settings how to load the files.  If {@link FileLoadSettings#isIncremental() incremental}, a snapshot manifest of
+	 * the size, last modified time, and checksum of each file is loaded from a {@value SnapshotManifest#MANIFEST_FILE_NAME} file in the
+	 * {@code rootFolder}.  Files whose size and last modified time match the manifest are not read until their lines are accessed.
+	 * The manifest is saved after the files are loaded, {@link #saveModifiedFiles(Charset, int) saved}, or {@link #reload() reloaded}
+	 * @throws UncheckedIOException if there is an error reading or writing the manifest
+	 */
+	public FileManipulator(Path rootFolder, Predicate<String> pathFilter, Charset cs, String newline, FileLoadSettings settings) {
+		this.parallelism = settings.getParallelism();
+		this.newline = newline;
+		this.rootFolder = rootFolder;
+		this.pathFilter = pathFilter;
+		this.cs = cs;
+		this.incremental = settings.isIncremental();
+		this.lineStorage = settings.getLineStorage();
+		this.lazy = settings.isLazy() || settings.isEvictable();
+		this.evictable = settings.isEvictable();
+		this.useIgnoreFiles = settings.isUseIgnoreFiles();
+		this.skipBinaryFiles = settings.isSkipBinaryFiles();
+		try {
+			loadFiles(null, incremental ? SnapshotManifest.load(getManifestFile()) : null);
+			if(incremental) {
+				SnapshotManifest.save(getManifestFile(), rootFolder, allFiles.values());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	/** Walk the root folder again and reload the files which have changed since they were loaded or saved.
+	 * Files whose size and last modified time have not changed, and files which have unsaved modifications, are kept.
+	 * New files are loaded and deleted files are removed.  The {@link #enableSearchIndex() search index}
+	 * and the snapshot manifest (if this manipulator is incremental) are updated
+	 * @throws IllegalStateException if this manipulator was not loaded from a root folder
+	 * @throws IOException if there is an error reading the files or updating the search index or manifest
+	 */
+	public void reload() throws IOException {
+		if(rootFolder == null) {
+			throw new IllegalStateException("file manipulator was not loaded from a folder, cannot reload");
+		}
+		try {
+			loadFiles(this.allFiles, null);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if(index != null) {
+			index.build(new ArrayList<>(this.allFiles.values()), parallelism);
+			index.save();
+		}
+		if(incremental) {
+			SnapshotManifest.save(getManifestFile(), rootFolder, allFiles.values());
+		}
+	}
+
+
+	/** Start watching the root folder for file changes made by other processes.  Changes are applied before the next
+	 * search, save, or file iteration: created and changed files are read, deleted files are removed, and files with
+	 * unsaved modifications are kept as-is.  Events are batched and only applied once they have settled, see {@link FileWatcher}
+	 * @throws IllegalStateException if this manipulator was not loaded from a root folder
+	 * @throws IOException if there is an error registering the folders to watch
+	 */
+	public void enableFileWatcher() throws IOException {
+		if(rootFolder == null) {
+			throw new IllegalStateException("file manipulator was not loaded from a folder, cannot watch for changes");
+		}
+		if(watcher == null) {
+			watcher = new FileWatcher(rootFolder, pathFilter, ignoreFiles);
+		}
+	}
+
+
+	/** Stop watching the root folder for file changes, changes which have not been applied yet are discarded
+	 */
+	public void disableFileWatcher() throws IOException {
+		if(watcher != null) {
+			watcher.close();
+			watcher = null;
+		}
+	}
+
+
+	public boolean isFileWatcherEnabled() {
+		return watcher != null;
+	}
+
+
+	private void applyFileChanges() {
+		if(watcher == null) {
+			return;
+		}
+		try {
+			Set<Path> changes = watcher.takeChanges();
+			if(changes == null) {
+				// events were lost, any file may have changed
+				reload();
+			}
+			else if(ignoreFiles != null && containsIgnoreFile(changes)) {
+				// any file or folder may now be ignored or no longer be ignored, watch the folders using the new rules before reloading
+				FileWatcher prevWatcher = watcher;
+				watcher = new FileWatcher(rootFolder, pathFilter, new IgnoreFiles(rootFolder));
+				prevWatcher.close();
+				reload();
+			}
+			else if(changes.size() > 0) {
+				refreshFiles(changes);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	/** Re-read created or changed files and remove deleted files, files with unsaved modifications are not changed
+	 * @param paths the paths of files or folders which have been created, modified, or deleted
+	 */
+	private void refreshFiles(Collection<Path> paths) throws IOException {
+		boolean concurrent = parallelism > 1;
+		List<FileInfo> updated = new ArrayList<>();
+		List<String> deletedPaths = new ArrayList<>();
+		boolean removed = false;
+		for(Path path : paths) {
+			File file = path.toFile();
+			FileInfo prevFileInfo = this.allFiles.get(file);
+			if(prevFileInfo != null && prevFileInfo.isLinesModified()) {
+				continue;
 			}
-			List<String> lines = null;
+
+			BasicFileAttributes attrs = null;
 			try {
-				lines = readLines(file.toPath(), cs);
-			} catch (IOException e) {
-				throw new RuntimeException(filePathStr, e);
+				attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			} catch (NoSuchFileException e) {
+				// deleted
+			}
+
+			if(attrs == null || !attrs.isRegularFile() || FileWalker.isCacheFile(file) || !FileWalker.isPathMatch(pathFilter, file) ||
+					(ignoreFiles != null && ignoreFiles.isFileOrParentIgnored(path))) {
+				if(prevFileInfo != null) {
+					removeFile(file);
+					removed = true;
+				}
+				else if(attrs == null) {
+					// possibly a deleted folder
+					deletedPaths.add(file.getPath() + File.separator);
+				}
+				continue;
+			}
+
+			if(prevFileInfo != null && prevFileInfo.getContentLength() == attrs.size() && prevFileInfo.getLastModified() == attrs.lastModifiedTime().toMillis()) {
+				continue;
+			}
+			FileInfo fileInfo = loadFile(file, attrs);
+			if(fileInfo == null) {
+				if(prevFileInfo != null) {
+					removeFile(file);
+					removed = true;
+				}
+				continue;
 			}
-			FileInfo fileInfo = new FileInfo(file, lines);
 			this.allFiles.put(file, fileInfo);
-			Map<File, FileInfo> files = this.filesByDir.get(folder);
-			if(files == null) {
-				files = new HashMap<>();
-				this.filesByDir.put(folder, files);
+			this.filesByDir.computeIfAbsent(file.getParentFile(), (k) -> concurrent ? new ConcurrentHashMap<>() : new HashMap<>()).put(file, fileInfo);
+			updated.add(fileInfo);
+		}
+
+		// remove the unmodified files in deleted folders
+		if(deletedPaths.size() > 0) {
+			for(File folder : new ArrayList<>(this.filesByDir.keySet())) {
+				String folderPath = folder.getPath() + File.separator;
+				for(String deletedPath : deletedPaths) {
+					if(folderPath.startsWith(deletedPath)) {
+						for(FileInfo fileInfo : new ArrayList<>(this.filesByDir.get(folder).values())) {
+							if(!fileInfo.isLinesModified()) {
+								removeFile(fileInfo.getFile());
+								removed = true;
+							}
+						}
+						break;
+					}
+				}
+			}
+		}
+
+		if(index != null && updated.size() > 0) {
+			index.update(updated);
+			index.save();
+		}
+		if(incremental && (updated.size() > 0 || removed)) {
+			SnapshotManifest.save(getManifestFile(), rootFolder, allFiles.values());
+		}
+	}
+
+
+	private static boolean containsIgnoreFile(Collection<Path> paths) {
+		for(Path path : paths) {
+			Path name = path.getFileName();
+			if(name != null && IgnoreFiles.isIgnoreFileName(name.toString())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	private void removeFile(File file) {
+		this.allFiles.remove(file);
+		Map<File, FileInfo> folderFiles = this.filesByDir.get(file.getParentFile());
+		if(folderFiles != null) {
+			folderFiles.remove(file);
+			if(folderFiles.isEmpty()) {
+				this.filesByDir.remove(file.getParentFile());
+			}
+		}
+	}
+
+
+	/** Walk the root folder and load each file
+	 * @param prevFiles previously loaded files to reuse if they have unsaved modifications or their size and last modified time have not changed. Null allowed
+	 * @param manifestEntries snapshot manifest entries of files which are lazily loaded if their size and last modified time have not changed. Null allowed
+	 */
+	private void loadFiles(Map<File, FileInfo> prevFiles, Map<String, SnapshotManifest.Entry> manifestEntries) {
+		boolean concurrent = parallelism > 1;
+		Map<File, Map<File, FileInfo>> filesByDir = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+		Map<File, FileInfo> allFiles = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+		Path absRoot = rootFolder.toAbsolutePath();
+		IgnoreFiles ignoreFiles = useIgnoreFiles ? new IgnoreFiles(rootFolder) : null;
+		// load files from a directory recursively
+		FileWalker.forEachFile(rootFolder.toFile(), pathFilter, ignoreFiles, parallelism, (folder, file) -> {
+			FileInfo fileInfo = null;
+			try {
+				if(prevFiles == null && manifestEntries == null) {
+					fileInfo = loadFile(file, null);
+				}
+				else {
+					BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+					long size = attrs.size();
+					long lastModified = attrs.lastModifiedTime().toMillis();
+					FileInfo prevFileInfo = prevFiles != null ? prevFiles.get(file) : null;
+					SnapshotManifest.Entry entry = manifestEntries != null ? manifestEntries.get(SnapshotManifest.relativePath(absRoot, file)) : null;
+
+					if(prevFileInfo != null && (prevFileInfo.isLinesModified() || (prevFileInfo.getContentLength() == size && prevFileInfo.getLastModified() == lastModified))) {
+						fileInfo = prevFileInfo;
+					}
+					else if(entry != null && entry.matches(size, lastModified)) {
+						// the manifest may have been saved by a manipulator which did not skip binary files
+						if(skipBinaryFiles && BinarySniffer.isBinary(file.toPath(), cs)) {
+							return;
+						}
+						fileInfo = new FileInfo(file, cs, lineStorage, entry.length, entry.hash, entry.lastModified, evictable);
+					}
+					else {
+						fileInfo = loadFile(file, attrs);
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(file.toString(), e);
+			}
+			if(fileInfo == null) {
+				return;
 			}
+			allFiles.put(file, fileInfo);
+			Map<File, FileInfo> files = filesByDir.computeIfAbsent(folder, (k) -> concurrent ? new ConcurrentHashMap<>() : new HashMap<>());
 			files.put(file, fileInfo);
 		});
+		this.filesByDir = filesByDir;
+		this.allFiles = allFiles;
+		this.ignoreFiles = ignoreFiles;
+	}
+
+
+	/** Read a file, or create a file info which reads the file the first time its lines are accessed if files are loaded lazily
+	 * @param attrs the file's attributes if they are already known. Null allowed
+	 * @return the file info or null if binary files are skipped and the file is binary
+	 */
+	private FileInfo loadFile(File file, BasicFileAttributes attrs) throws IOException {
+		if(skipBinaryFiles && BinarySniffer.isBinary(file.toPath(), cs)) {
+			return null;
+		}
+		if(lazy) {
+			return new FileInfo(file, cs, lineStorage, -1, 0, 0, evictable);
+		}
+		return readFile(file, cs, lineStorage, attrs);
+	}
+
+
+	private Path getManifestFile() {
+		return rootFolder.resolve(SnapshotManifest.MANIFEST_FILE_NAME);
+	}
+
+
+	/**
+	 * @return the line separator used when saving files which do not have a detected {@link FileFormat#getNewline()},
+	 * or when saving every file if {@link #isForceNewline()}
+	 */
+	public String getNewline() {
+		return newline;
+	}
+
+
+	public void setNewline(String newline) {
+		this.newline = newline;
+	}
+
+
+	/**
+	 * @return true if every line of every saved file is terminated by this manipulator's {@link #getNewline() newline},
+	 * false if files are saved with the line terminators they were loaded with
+	 */
+	public boolean isForceNewline() {
+		return forceNewline;
+	}
+
+
+	/**
+	 * @param forceNewline true to save every line of every file with this manipulator's {@link #getNewline() newline}, converting
+	 * the line terminators of the files being saved, false (the default) to save files with the line terminators they were loaded with.
+	 * Each file's trailing newline and byte order mark are kept either way
+	 */
+	public void setForceNewline(boolean forceNewline) {
+		this.forceNewline = forceNewline;
 	}
 
 
 	public int getFileCount() {
+		applyFileChanges();
 		int count = allFiles.size();
 		return count;
 	}
 
 
+	/**
+	 * @return the number of threads used to search files
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+
+	/**
+	 * @param parallelism the number of threads to use to search files, 1 searches files one at a time on the calling thread
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(parallelism, 1);
+	}
+
+
 	/** Search for a string the set of files loaded into this file manipulator
 	 * @param searchStr the string to search for. The string is compared to
-	 * individual lines, a search string cannot match across multiple lines
+	 * individual lines, a search string cannot match across multiple lines.
+	 * Files are searched concurrently if this manipulator's {@link #getParallelism()} is greater than 1,
+	 * each file is always searched by a single thread, so the results for each file are the same either way
 	 * @return an object representing the results of this search operation
 	 */
 	public ManipulateFileLines search(String searchStr) {
-		Map<File, FileLineSearch> allMatches = new HashMap<>();
+		return search(StringMatcher.of(searchStr));
+	}
+
+
+	/** Search for a regular expression in the set of files loaded into this file manipulator.
+	 * The pattern is compiled once for the entire search
+	 * @param regex the regular expression to search for, see {@link RegexMatcher}.
+	 * A match cannot span multiple lines. {@link ManipulateLines.FileLineOp#REPLACE_MATCHING_PORTION}
+	 * replacement strings can contain group references such as {@code $1}
+	 * @return an object representing the results of this search operation
+	 */
+	public ManipulateFileLines searchRegex(String regex) {
+		return search(new RegexMatcher(regex));
+	}
+
+
+	/** Search the set of files loaded into this file manipulator for matches
+	 * @param matcher the matcher to search with. The matcher is compared to
+	 * individual lines, a match cannot span multiple lines. See {@link #search(String)}
+	 * @return an object representing the results of this search operation
+	 */
+	public ManipulateFileLines search(StringMatcher matcher) {
+		applyFileChanges();
+		boolean concurrent = parallelism > 1;
+		Map<File, FileLineSearch> allMatches = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+
+		String literal = matcher.getLiteral();
+		List<FileInfo> searchFiles = getSearchFiles(literal != null ? Collections.singletonList(literal) : null);
+
+		ParallelTasks.forEach(searchFiles, parallelism, SEARCH_BATCH_SIZE, (fileInfo) -> {
+			FileLineSearch lineMatches = searchLines(fileInfo, matcher);
+			if(lineMatches != null) {
+				allMatches.put(fileInfo.getFile(), lineMatches);
+			}
+		});
+
+		return new ManipulateFileLines(matcher, (s1, s2) -> {
+			return s1 + s2;
+		}, matcher::replaceAll, allMatches);
+	}
+
+
+	/** Search for multiple strings at once in the set of files loaded into this file manipulator.
+	 * Every string is found in a single pass over each line using an {@link AhoCorasickMatcher}
+	 * @param searchReplacements the strings to search for and the replacement for each string
+	 * @return the results for each search string and the combined results for all of the search strings,
+	 * {@link MultiManipulateFileLines#replaceAll()} replaces every search string with its replacement
+	 */
+	public MultiManipulateFileLines searchAll(Map<String, String> searchReplacements) {
+		applyFileChanges();
+		AhoCorasickMatcher matcher = new AhoCorasickMatcher(searchReplacements);
+		int patternCount = matcher.getPatternCount();
+		boolean concurrent = parallelism > 1;
+		Map<File, FileLineSearch> allMatches = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+		List<Map<File, FileLineSearch>> patternMatches = new ArrayList<>();
+		for(int i = 0; i < patternCount; i++) {
+			patternMatches.add(concurrent ? new ConcurrentHashMap<>() : new HashMap<>());
+		}
+
+		List<FileInfo> searchFiles = getSearchFiles(new ArrayList<>(searchReplacements.keySet()));
 
-		this.allFiles.forEach((f, fileInfo) -> {
+		ParallelTasks.forEach(searchFiles, parallelism, SEARCH_BATCH_SIZE, (fileInfo) -> {
 			List<String> lines = fileInfo.getLines();
-			FileLineSearch lineMatches = allMatches.get(f);
+			File file = fileInfo.getFile();
+			boolean[] found = new boolean[patternCount];
+			IntArrayList foundIndices = new IntArrayList();
+			FileLineSearch lineMatches = null;
 
 			for(int i = 0, size = lines.size(); i < size; i++) {
 				String line = lines.get(i);
-				int index = line.indexOf(searchStr);
-				if(index > -1) {
-					if(lineMatches == null) {
-						lineMatches = new FileLineSearch(fileInfo, new IntArrayList(), new ArrayList<>());
-						allMatches.put(f, lineMatches);
-					}
+				if(!matcher.findPatterns(line, found, foundIndices)) {
+					continue;
+				}
+				if(lineMatches == null) {
+					lineMatches = new FileLineSearch(fileInfo, new IntArrayList(), new ArrayList<>());
+					allMatches.put(file, lineMatches);
+				}
+				lineMatches.getMatchingLineNums().add(i);
+				lineMatches.getMatchingLines().add(line);
 
-					lineMatches.getMatchingLineNums().add(i);
-					lineMatches.getMatchingLines().add(line);
+				for(int k = 0, count = foundIndices.size(); k < count; k++) {
+					int patternIdx = foundIndices.get(k);
+					FileLineSearch patternLineMatches = patternMatches.get(patternIdx).computeIfAbsent(file, (f) -> new FileLineSearch(fileInfo, new IntArrayList(), new ArrayList<>()));
+					patternLineMatches.getMatchingLineNums().add(i);
+					patternLineMatches.getMatchingLines().add(line);
+					found[patternIdx] = false;
 				}
+				foundIndices.clear();
 			}
 		});
 
-		return new ManipulateFileLines((s) -> {
-			return s.indexOf(searchStr) > -1;
-		}, (s1, s2) -> {
+		Map<String, ManipulateFileLines> patternResults = new LinkedHashMap<>();
+		for(int i = 0; i < patternCount; i++) {
+			StringMatcher patternMatcher = StringMatcher.of(matcher.getPattern(i));
+			patternResults.put(matcher.getPattern(i), new ManipulateFileLines(patternMatcher, (s1, s2) -> {
+				return s1 + s2;
+			}, patternMatcher::replaceAll, patternMatches.get(i)));
+		}
+
+		ManipulateFileLines combinedResults = new ManipulateFileLines(matcher, (s1, s2) -> {
 			return s1 + s2;
 		}, (str, replace) -> {
-			return StringReplace.replace(str, searchStr, replace);
+			return matcher.replaceAll(str);
 		}, allMatches);
+
+		return new MultiManipulateFileLines(matcher, patternResults, combinedResults);
+	}
+
+
+	/** Get the files which could contain any of a set of search strings.  If a {@link #enableSearchIndex() search index}
+	 * is enabled, the files which the index says contain one of the strings plus every modified file (since the index
+	 * only reflects the files' saved contents) are returned, otherwise all files are returned
+	 * @param literals the search strings, null if the search is not for literal strings
+	 */
+	private List<FileInfo> getSearchFiles(List<String> literals) {
+		if(index == null || literals == null) {
+			return new ArrayList<>(this.allFiles.values());
+		}
+
+		Set<File> candidates = new HashSet<>();
+		for(String literal : literals) {
+			List<File> files = index.getCandidateFiles(literal);
+			if(files == null) {
+				return new ArrayList<>(this.allFiles.values());
+			}
+			candidates.addAll(files);
+		}
+
+		List<FileInfo> searchFiles = new ArrayList<>();
+		for(FileInfo fileInfo : this.allFiles.values()) {
+			if(fileInfo.isLinesModified() || candidates.contains(fileInfo.getFile())) {
+				searchFiles.add(fileInfo);
+			}
+		}
+		return searchFiles;
+	}
+
+
+	/** Search the lines of a single file for matches
+	 * @param fileInfo the file to search
+	 * @param matcher the matcher to search with
+	 * @return the matching lines from the file or null if no lines matched
+	 */
+	static FileLineSearch searchLines(FileInfo fileInfo, StringMatcher matcher) {
+		List<String> lines = fileInfo.getLines();
+		FileLineSearch lineMatches = null;
+
+		// search unmodified compact files' bytes directly rather than decoding every line
+		String literal;
+		if(lines instanceof CompactLines && ((CompactLines)lines).isUnmodified() && (literal = matcher.getLiteral()) != null &&
+				MappedFileSearch.isSupported(literal, ((CompactLines)lines).getCharset())) {
+			CompactLines compactLines = (CompactLines)lines;
+			IntArrayList lineNums = new IntArrayList();
+			List<String> matchingLines = new ArrayList<>();
+			if(MappedFileSearch.searchLines(compactLines.getContent(), compactLines.getCharset(), literal.getBytes(compactLines.getCharset()), lineNums, matchingLines)) {
+				lineMatches = new FileLineSearch(fileInfo, lineNums, matchingLines);
+			}
+			return lineMatches;
+		}
+
+		for(int i = 0, size = lines.size(); i < size; i++) {
+			String line = lines.get(i);
+			if(matcher.test(line)) {
+				if(lineMatches == null) {
+					lineMatches = new FileLineSearch(fileInfo, new IntArrayList(), new ArrayList<>());
+				}
+
+				lineMatches.getMatchingLineNums().add(i);
+				lineMatches.getMatchingLines().add(line);
+			}
+		}
+
+		return lineMatches;
 	}
 
 
@@ -139,44 +681,254 @@ public class FileManipulator {
 	 * each file managed by this file manipulator
 	 */
 	public void forEachFile(BiConsumer<File, FileInfo> folderFileConsumer) {
+		applyFileChanges();
 		filesByDir.entrySet().forEach((entry) -> {
 			entry.getValue().forEach(folderFileConsumer);
 		});
 	}
 
 
-	/** Save all of the modified files
+	/** Save all of the modified files, using up to {@link #getParallelism()} threads.
+	 * See {@link #saveModifiedFiles(Charset, int)}
 	 * @param charset the charset to use when saving files
+	 * @return the files which were written, see {@link #saveModifiedFiles(Charset, int)}
 	 * @throws IOException if there is an error saving the files
 	 */
-	public void saveModifiedFiles(Charset charset) throws IOException {
+	public List<FileInfo> saveModifiedFiles(Charset charset) throws IOException {
+		return saveModifiedFiles(charset, parallelism);
+	}
+
+
+	/** Save all of the modified files.  Files are saved in the {@link FileFormat} detected when they were loaded,
+	 * using the same line terminator, trailing newline, and byte order mark.  In files with mixed line terminators each line keeps
+	 * the terminator it was read with and inserted lines use the file's most common terminator.  Files without a detected line terminator
+	 * are saved using this manipulator's {@link #getNewline() newline}, which is used for every file if {@link #setForceNewline(boolean) forced}.  Modified files whose encoded contents have the
+	 * same length and {@link FileInfo#getContentHash() checksum} as when they were loaded are not rewritten.  Each file is written to a temporary file in the same folder which is then atomically moved
+	 * over the original file, so a failure never leaves a partially written file
+	 * @param charset the charset to use when saving files
+	 * @param maxConcurrentWrites the maximum number of files to write at the same time
+	 * @return the modified files which were written, excluding files whose saved contents were identical to the file on disk
+	 * @throws IOException if there is an error saving the files
+	 */
+	public List<FileInfo> saveModifiedFiles(Charset charset, int maxConcurrentWrites) throws IOException {
+		applyFileChanges();
+		List<FileInfo> modifiedFiles = new ArrayList<>();
 		for(Map.Entry<File, Map<File, FileInfo>> dirFiles : filesByDir.entrySet()) {
 			for(Map.Entry<File, FileInfo> fileInfo : dirFiles.getValue().entrySet()) {
-				if(!fileInfo.getValue().isLinesModified()) {
-					continue;
+				if(fileInfo.getValue().isLinesModified()) {
+					modifiedFiles.add(fileInfo.getValue());
 				}
-				Files.write(fileInfo.getKey().toPath(), fileInfo.getValue().getLines(), charset);
-				fileInfo.getValue().setLinesModified(false);
 			}
 		}
+		List<FileInfo> writtenFiles = FileSaver.save(modifiedFiles, charset, newline, forceNewline, maxConcurrentWrites);
+
+		if(index != null) {
+			index.update(modifiedFiles);
+			index.save();
+		}
+		if(incremental && writtenFiles.size() > 0) {
+			SnapshotManifest.save(getManifestFile(), rootFolder, allFiles.values());
+		}
+		return writtenFiles;
 	}
 
 
+	/** Enable a trigram search index, stored in a cache file named {@value TrigramIndex#CACHE_FILE_NAME} in this manipulator's root folder.
+	 * See {@link #enableSearchIndex(Path)}
+	 * @throws IllegalStateException if this manipulator was not loaded from a root folder
+	 */
+	public void enableSearchIndex() throws IOException {
+		if(rootFolder == null) {
+			throw new IllegalStateException("file manipulator was not loaded from a folder, the index cache file must be specified");
+		}
+		enableSearchIndex(rootFolder.resolve(TrigramIndex.CACHE_FILE_NAME));
+	}
+
+
+	/** Enable a trigram search index which narrows the files searched by {@link #search(StringMatcher)} and {@link #searchAll(Map)}
+	 * for literal search strings of at least 3 characters to the files containing every 3 character sequence in the search string.
+	 * Files which have been modified but not saved are always searched.<br>
+	 * The index is loaded from a cache file, updated for files which have changed since the cache was written, and saved back
+	 * to the cache file.  The index is updated and saved again each time {@link #saveModifiedFiles(Charset, int)} is called.
+	 * The index assumes that files are only modified through this manipulator or by other processes before the manipulator is created
+	 * @param cacheFile the index cache file, created if it does not exist
+	 * @throws IOException if there is an error reading or writing the cache file
+	 */
+	public void enableSearchIndex(Path cacheFile) throws IOException {
+		TrigramIndex index = TrigramIndex.load(rootFolder != null ? rootFolder : cacheFile.toAbsolutePath().getParent(), cacheFile);
+		index.build(new ArrayList<>(this.allFiles.values()), parallelism);
+		index.save();
+		this.index = index;
+	}
+
+
+	public boolean isSearchIndexEnabled() {
+		return index != null;
+	}
+
+
+	/** Read a file's lines, the same as {@link java.io.BufferedReader#readLine()} but any leading byte order mark is removed.
+	 * Malformed input is replaced with the charset's replacement character
+	 * @param file the file to read
+	 * @param cs the file's charset
+	 * @return the file's lines
+	 */
 	public static final List<String> readLines(Path file, Charset cs) throws IOException {
-		int bufSize = 4096;
-		CharsetDecoder decoder = cs.newDecoder()
+		return readLines(file, cs, new LineReader()).getLines();
+	}
+
+
+	/** Read a file's lines, detect its {@link FileFormat}, and compute the length and checksum of its contents in a single pass.
+	 * The file's last modified time is also recorded.<br>
+	 * The file is read using a strategy chosen by its size: files up to {@link #SMALL_FILE_SIZE} are read in a single call and
+	 * decoded in bulk, larger files are decoded in blocks through a reusable per-thread buffer.
+	 * The lines are always stored as {@link LineStorage#STRINGS}, regardless of the file's size, use
+	 * {@link #readFile(File, Charset, LineStorage)} to store a large file's lines compactly
+	 * @see #readLines(Path, Charset)
+	 */
+	public static final FileInfo readFile(File file, Charset cs) throws IOException {
+		return readFile(file, cs, LineStorage.STRINGS);
+	}
+
+
+	/** Read a file's lines, detect its {@link FileFormat}, and compute the length and checksum of its contents in a single pass,
+	 * storing the lines as specified by {@code lineStorage}.  Compact line storage is only used for charsets supported by
+	 * {@link MappedFileSearch}, files in other charsets are stored as {@link LineStorage#STRINGS}
+	 * @see #readFile(File, Charset)
+	 */
+	public static final FileInfo readFile(File file, Charset cs, LineStorage lineStorage) throws IOException {
+		return readFile(file, cs, lineStorage, null);
+	}
+
+
+	/** Read a file using a strategy chosen by its size and store its lines as specified by {@code lineStorage}, see {@link #readFile(File, Charset)}
+	 * @param attrs the file's attributes if they are already known, used to pick the read strategy and record the
+	 * file's last modified time. Null to read them
+	 */
+	static final FileInfo readFile(File file, Charset cs, LineStorage lineStorage, BasicFileAttributes attrs) throws IOException {
+		Path path = file.toPath();
+		// read the last modified time before the contents, so that a concurrent modification leaves the recorded time out of date rather than the contents
+		if(attrs == null) {
+			attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		}
+		long size = attrs.size();
+		long lastModified = attrs.lastModifiedTime().toMillis();
+
+		FileInfo fileInfo;
+		if(lineStorage != null && lineStorage != LineStorage.STRINGS && MappedFileSearch.isSupported(cs)) {
+			ByteBuffer content;
+			if(lineStorage == LineStorage.OFF_HEAP) {
+				content = readDirect(path);
+			}
+			else {
+				content = ByteBuffer.wrap(Files.readAllBytes(path));
+			}
+			CRC32C crc = new CRC32C();
+			crc.update(content.duplicate());
+			CompactLines lines = CompactLines.read(content, cs);
+			fileInfo = new FileInfo(file, lines, lines.getFormat(), content.limit(), crc.getValue());
+		}
+		else if(size <= SMALL_FILE_SIZE) {
+			byte[] content = Files.readAllBytes(path);
+			CRC32C crc = new CRC32C();
+			crc.update(content, 0, content.length);
+			LineReader lineReader = new LineReader().read(newDecoder(cs).decode(ByteBuffer.wrap(content)));
+			fileInfo = new FileInfo(file, lineReader.getLines(), lineReader.getFormat(), content.length, crc.getValue());
+		}
+		else {
+			CRC32C crc = new CRC32C();
+			LineReader lineReader = new LineReader();
+			long length = readBlocks(path, cs, lineReader, crc);
+			fileInfo = new FileInfo(file, lineReader.getLines(), lineReader.getFormat(), length, crc.getValue());
+		}
+		fileInfo.setLastModified(lastModified);
+		return fileInfo;
+	}
+
+
+	/** Read and decode a file in blocks through this thread's {@link #readBuffer} and {@link #decodeBuffer}
+	 * @return the number of bytes read
+	 */
+	private static final long readBlocks(Path file, Charset cs, LineReader lineReader, CRC32C crc) throws IOException {
+		CharsetDecoder decoder = newDecoder(cs);
+		ByteBuffer in = readBuffer.get();
+		CharBuffer out = decodeBuffer.get();
+		in.clear();
+		out.clear();
+		long length = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			boolean eof = false;
+			while(!eof) {
+				int start = in.position();
+				int count = channel.read(in);
+				if(count < 0) {
+					eof = true;
+				}
+				else {
+					ByteBuffer readBytes = in.duplicate();
+					readBytes.position(start);
+					readBytes.limit(start + count);
+					crc.update(readBytes);
+					length += count;
+				}
+				in.flip();
+				CoderResult result;
+				do {
+					result = decoder.decode(in, out, eof);
+					out.flip();
+					lineReader.append(out);
+					out.clear();
+				} while(result.isOverflow());
+				in.compact();
+			}
+			CoderResult result;
+			do {
+				result = decoder.flush(out);
+				out.flip();
+				lineReader.append(out);
+				out.clear();
+			} while(result.isOverflow());
+		}
+		lineReader.finish();
+		return length;
+	}
+
+
+	private static final CharsetDecoder newDecoder(Charset cs) {
+		return cs.newDecoder()
 				.onMalformedInput(CodingErrorAction.REPLACE)
 				.onUnmappableCharacter(CodingErrorAction.REPLACE);
-		try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getFileSystem().provider().newInputStream(file), decoder), bufSize)) {
-            List<String> result = new ArrayList<>();
-            for (;;) {
-                String line = reader.readLine();
-                if (line == null)
-                    break;
-                result.add(line);
-            }
-            return result;
-        }
+	}
+
+
+	/** Read a file directly into a buffer allocated from {@link #offHeapArena} without copying it through the Java heap
+	 */
+	private static final ByteBuffer readDirect(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("file too large to load (" + size + " bytes): " + file);
+			}
+			ByteBuffer buf = offHeapArena.allocate((int)size);
+			while(buf.hasRemaining() && channel.read(buf) > -1) { }
+			// the file may have been truncated while it was being read
+			buf.flip();
+			return buf;
+		}
+	}
+
+
+	private static final LineReader readLines(Path file, Charset cs, LineReader lineReader) throws IOException {
+		try (InputStream in = file.getFileSystem().provider().newInputStream(file)) {
+			return readLines(in, cs, lineReader);
+		}
+	}
+
+
+	private static final LineReader readLines(InputStream in, Charset cs, LineReader lineReader) throws IOException {
+		CharsetDecoder decoder = newDecoder(cs);
+		// the reader is not closed, the caller closes the input stream
+		return lineReader.read(new InputStreamReader(in, decoder));
 	}
 
 }
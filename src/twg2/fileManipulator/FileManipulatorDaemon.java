@@ -0,0 +1,427 @@
+package twg2.fileManipulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import twg2.fileManipulator.FileManipulatorMain.PrintFileMatchOps;
+import twg2.fileManipulator.ManipulateLines.DebugOp;
+import twg2.fileManipulator.ManipulateLines.FileLineOp;
+
+/** Keeps a {@link FileManipulator} loaded in memory and runs search/manipulate/save commands sent by clients,
+ * so that each command does not pay for JVM startup and loading the project folder.<br>
+ * The daemon listens on a loopback TCP port and writes the port and a random access token to a
+ * {@value #DAEMON_FILE_NAME} file in the project folder, readable only by its owner (where the file system supports POSIX permissions).
+ * Clients must send the token with each command.  Commands are run one at a time.  Files changed by other processes are picked up
+ * by the manipulator's {@link FileManipulator#enableFileWatcher() file watcher}, or if it is not enabled, by
+ * {@link FileManipulator#reload() reloading} the project folder before each command.<br>
+ * Command arguments are the same as the command line arguments: {@code -searchText}, {@code -searchRegex}, {@code -operation},
+ * and {@code -replaceText}, or a single {@code -reload} or {@code -stop} argument
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public class FileManipulatorDaemon {
+	/** the name of the file containing the daemon's port and access token, created in the project folder */
+	public static final String DAEMON_FILE_NAME = ".filemanipulator-daemon";
+	/** the maximum time to wait for a client to send a command */
+	static final int READ_TIMEOUT_MILLIS = 30000;
+	/** the maximum number of arguments accepted in a command */
+	static final int MAX_ARG_COUNT = 1024;
+	private static final int MAGIC = 0x464D4443;
+
+	private final FileManipulator manipulator;
+	private final Path projectFolder;
+	private final Charset cs;
+	private final String token;
+	private ServerSocket server;
+	private volatile boolean running;
+
+
+	/**
+	 * @param manipulator the file manipulator to run commands against, must have been loaded from {@code projectFolder}
+	 * @param projectFolder the project folder, the daemon file is created in this folder
+	 * @param cs the charset to save files with
+	 */
+	public FileManipulatorDaemon(FileManipulator manipulator, Path projectFolder, Charset cs) {
+		this.manipulator = manipulator;
+		this.projectFolder = projectFolder;
+		this.cs = cs;
+		byte[] tokenBytes = new byte[24];
+		new SecureRandom().nextBytes(tokenBytes);
+		StringBuilder sb = new StringBuilder();
+		for(byte b : tokenBytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		this.token = sb.toString();
+	}
+
+
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+
+	public boolean isRunning() {
+		return running;
+	}
+
+
+	/** Start listening on a loopback port and write the daemon file
+	 * @throws IOException if the port cannot be opened or the daemon file cannot be written
+	 */
+	public void start() throws IOException {
+		server = new ServerSocket();
+		server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		try {
+			writeDaemonFile();
+		} catch (IOException e) {
+			server.close();
+			throw e;
+		}
+		running = true;
+	}
+
+
+	/** Accept and run commands until {@link #stop()} is called or a {@code -stop} command is received
+	 */
+	public void run() {
+		try {
+			while(running) {
+				try (Socket socket = server.accept()) {
+					handle(socket);
+				} catch (SocketTimeoutException e) {
+					// client did not send a command in time, drop the connection
+				} catch (IOException e) {
+					if(running) {
+						System.err.println("daemon connection error: " + e);
+					}
+				}
+			}
+		} finally {
+			stop();
+		}
+	}
+
+
+	/** Stop accepting commands and delete the daemon file
+	 */
+	public void stop() {
+		running = false;
+		try {
+			server.close();
+		} catch (IOException e) {
+			// already closed
+		}
+		try {
+			Files.deleteIfExists(getDaemonFile(projectFolder));
+		} catch (IOException e) {
+			System.err.println("could not delete daemon file: " + e);
+		}
+	}
+
+
+	private void handle(Socket socket) throws IOException {
+		socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		if(in.readInt() != MAGIC) {
+			return;
+		}
+		// check the token before reading the rest of the command, so unauthenticated clients cannot make the daemon read and store arguments
+		byte[] clientToken = in.readUTF().getBytes(StandardCharsets.UTF_8);
+		if(!MessageDigest.isEqual(clientToken, token.getBytes(StandardCharsets.UTF_8))) {
+			respond(out, 2, "invalid daemon access token" + System.lineSeparator());
+			return;
+		}
+		int argCount = in.readInt();
+		if(argCount < 0 || argCount > MAX_ARG_COUNT) {
+			respond(out, 2, "invalid argument count " + argCount + ", the maximum is " + MAX_ARG_COUNT + System.lineSeparator());
+			return;
+		}
+		List<String> args = new ArrayList<>(argCount);
+		for(int i = 0; i < argCount; i++) {
+			args.add(in.readUTF());
+		}
+
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		int status;
+		try (PrintStream cmdOut = new PrintStream(buf, true, "UTF-8")) {
+			status = execute(args, cmdOut);
+		}
+		respond(out, status, buf.toByteArray());
+	}
+
+
+	private static void respond(DataOutputStream out, int status, String message) throws IOException {
+		respond(out, status, message.getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	private static void respond(DataOutputStream out, int status, byte[] output) throws IOException {
+		out.writeInt(status);
+		out.writeInt(output.length);
+		out.write(output);
+		out.flush();
+	}
+
+
+	/** Run a command
+	 * @param args the command arguments
+	 * @param out the command's output
+	 * @return the command's exit status, 0 if successful
+	 */
+	int execute(List<String> args, PrintStream out) {
+		try {
+			String command = args.size() > 0 ? args.get(0) : null;
+			if("-stop".equals(command)) {
+				running = false;
+				out.println("daemon stopped");
+				return 0;
+			}
+
+			// changes are applied automatically if the manipulator is watching for changes
+			if(!manipulator.isFileWatcherEnabled() || "-reload".equals(command)) {
+				manipulator.reload();
+			}
+			if("-reload".equals(command)) {
+				out.println(manipulator.getFileCount() + " total files");
+				return 0;
+			}
+
+			FileManipulatorParameters params = new FileManipulatorParameters(cs);
+			applyArgs(params, args);
+			if(params.getSearchString() == null || params.getOperation() == null) {
+				throw new IllegalArgumentException("-searchText and -operation are required");
+			}
+
+			PrintFileMatchOps printer = new PrintFileMatchOps();
+			printer.writer = out;
+			ManipulateFileLines searchSet = manipulator.search(params.createSearchMatcher());
+			Enum<?> fileOp = params.getOperation();
+			if(fileOp instanceof DebugOp) {
+				searchSet.lineOperation((DebugOp)fileOp, printer::matchingFile, printer::matchingLine, printer::matchingLineCountPerFile, printer::matchingLineFromFile);
+				out.println(manipulator.getFileCount() + " total files, " + searchSet.getMatchingSourceCount() + " files matched");
+			}
+			else {
+				if(params.getReplaceString() == null) {
+					throw new IllegalArgumentException("-replaceText is required for operation " + fileOp);
+				}
+				searchSet.manipulateLines((FileLineOp)fileOp, params.getReplaceString());
+				List<FileInfo> savedFiles = manipulator.saveModifiedFiles(cs);
+				for(FileInfo fileInfo : savedFiles) {
+					out.println("modified: " + projectFolder.relativize(fileInfo.getFile().toPath()));
+				}
+				out.println(manipulator.getFileCount() + " total files, " + savedFiles.size() + " files modified");
+			}
+			return 0;
+		} catch (Exception e) {
+			out.println("error: " + e);
+			return 1;
+		}
+	}
+
+
+	private void writeDaemonFile() throws IOException {
+		Path file = getDaemonFile(projectFolder);
+		Path tmpFile = Files.createTempFile(projectFolder.toAbsolutePath(), "." + DAEMON_FILE_NAME + ".", ".tmp");
+		try {
+			// temporary files are only readable by their owner, make sure of it on POSIX file systems
+			if(Files.getFileStore(tmpFile).supportsFileAttributeView("posix")) {
+				Files.setPosixFilePermissions(tmpFile, PosixFilePermissions.fromString("rw-------"));
+			}
+			Files.write(tmpFile, Arrays.asList(Integer.toString(getPort()), token), StandardCharsets.UTF_8);
+			if(Files.exists(file)) {
+				throw new FileAlreadyExistsException(file.toString(), null, "another daemon may be running for this project, delete the file if it is not");
+			}
+			FileSaver.replaceFile(tmpFile, file);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tmpFile);
+			throw e;
+		}
+	}
+
+
+	static Path getDaemonFile(Path projectFolder) {
+		return projectFolder.resolve(DAEMON_FILE_NAME);
+	}
+
+
+	/** Send a command to the daemon running for a project folder
+	 * @param projectFolder the project folder the daemon was started for
+	 * @param args the command arguments
+	 * @param out the stream to copy the command's output to
+	 * @return the command's exit status, 0 if successful
+	 * @throws IOException if the daemon file cannot be read or the daemon cannot be reached
+	 */
+	public static int sendCommand(Path projectFolder, List<String> args, OutputStream out) throws IOException {
+		List<String> daemonInfo = Files.readAllLines(getDaemonFile(projectFolder), StandardCharsets.UTF_8);
+		if(daemonInfo.size() < 2) {
+			throw new IOException("invalid daemon file: " + getDaemonFile(projectFolder));
+		}
+		int port = Integer.parseInt(daemonInfo.get(0).trim());
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			DataOutputStream req = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			req.writeInt(MAGIC);
+			req.writeUTF(daemonInfo.get(1).trim());
+			req.writeInt(args.size());
+			for(String arg : args) {
+				req.writeUTF(arg);
+			}
+			req.flush();
+
+			DataInputStream res = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			int status = res.readInt();
+			byte[] output = new byte[res.readInt()];
+			res.readFully(output);
+			out.write(output);
+			out.flush();
+			return status;
+		}
+	}
+
+
+	/** Load a project folder and run a daemon for it until it is stopped
+	 * @param args {@code -projectPath} and optionally {@code -exclude}, {@code -include}, {@code -parallelism}, {@code -incremental}, {@code -compact}, {@code -offHeap}, {@code -lazy}, {@code -gitignore}, and {@code -includeBinary}
+	 */
+	public static void runDaemon(List<String> args, Charset cs) throws IOException {
+		FileManipulatorParameters params = new FileManipulatorParameters(cs);
+		applyArgs(params, args);
+		Path projectFolder = params.getSearchDirectory();
+		if(projectFolder == null) {
+			throw new IllegalArgumentException("-projectPath is required");
+		}
+
+		FileManipulator manipulator = new FileManipulator(projectFolder, params.getPathFilter(), cs, "\n", params.createLoadSettings());
+		manipulator.enableSearchIndex();
+		manipulator.enableFileWatcher();
+		FileManipulatorDaemon daemon = new FileManipulatorDaemon(manipulator, projectFolder, cs);
+		daemon.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop));
+		System.out.println("daemon listening on port " + daemon.getPort() + " for project: " + projectFolder + ", " + manipulator.getFileCount() + " files loaded");
+		daemon.run();
+	}
+
+
+	/** Send a command to a running daemon and print its output
+	 * @param args {@code -projectPath} followed by the command arguments
+	 * @return the command's exit status
+	 */
+	public static int runClient(List<String> args, Charset cs, PrintStream out) throws IOException {
+		List<String> cmdArgs = new ArrayList<>(args);
+		int projIdx = cmdArgs.indexOf("-projectPath");
+		if(projIdx < 0 || projIdx + 1 >= cmdArgs.size()) {
+			throw new IllegalArgumentException("-projectPath is required");
+		}
+		FileManipulatorParameters params = new FileManipulatorParameters(cs);
+		params.resolveSearchDirectory(cmdArgs.get(projIdx + 1));
+		cmdArgs.subList(projIdx, projIdx + 2).clear();
+		return sendCommand(params.getSearchDirectory(), cmdArgs, out);
+	}
+
+
+	/** Apply command line style arguments to a set of parameters
+	 * @throws IllegalArgumentException if an argument is unknown or is missing its value
+	 */
+	static void applyArgs(FileManipulatorParameters params, List<String> args) {
+		for(int i = 0, size = args.size(); i < size; i++) {
+			String arg = args.get(i);
+			switch(arg) {
+			case "-searchRegex":
+				params.setSearchRegex(true);
+				continue;
+			case "-incremental":
+				params.setIncremental(true);
+				continue;
+			case "-compact":
+				params.setCompact(true);
+				continue;
+			case "-offHeap":
+				params.setOffHeap(true);
+				continue;
+			case "-lazy":
+				params.setLazy(true);
+				continue;
+			case "-gitignore":
+				params.setGitignore(true);
+				continue;
+			case "-includeBinary":
+				params.setIncludeBinary(true);
+				continue;
+			case "-reload":
+			case "-stop":
+				continue;
+			default:
+				break;
+			}
+
+			if(i + 1 >= size) {
+				throw new IllegalArgumentException("missing value for parameter '" + arg + "'");
+			}
+			String value = args.get(++i);
+			switch(arg) {
+			case "-projectPath":
+				params.resolveSearchDirectory(value);
+				break;
+			case "-searchText":
+				params.setSearchString(value);
+				break;
+			case "-operation":
+				params.setOperation(parseOperation(value));
+				break;
+			case "-replaceText":
+				params.setReplaceString(value);
+				break;
+			case "-exclude":
+				params.setExcludePatterns(Paths.get(value), true);
+				break;
+			case "-include":
+				params.setIncludePatterns(Paths.get(value), true);
+				break;
+			case "-parallelism":
+				params.setParallelism(Integer.parseInt(value));
+				break;
+			default:
+				throw new IllegalArgumentException("unknown parameter '" + arg + "'");
+			}
+		}
+	}
+
+
+	private static Enum<?> parseOperation(String name) {
+		for(FileLineOp op : FileLineOp.values()) {
+			if(op.name().equals(name)) {
+				return op;
+			}
+		}
+		for(DebugOp op : DebugOp.values()) {
+			if(op.name().equals(name)) {
+				return op;
+			}
+		}
+		throw new IllegalArgumentException("unknown operation '" + name + "', expected one of " + Arrays.toString(FileLineOp.values()) + " or " + Arrays.toString(DebugOp.values()));
+	}
+
+}
@@ -9,6 +9,7 @@ import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
 import twg2.cli.ParameterSet;
@@ -34,37 +35,42 @@ public class FileManipulatorMain {
 		paramParser.parseInteractive(args, 0, new BufferedReader(new InputStreamReader(System.in)), System.out, "help");
 
 		Path searchDir = params.getSearchDirectory();
-		FileManipulator folderManipulator = new FileManipulator(searchDir, params::isFileNameMatch, cs, newline);
-		ManipulateFileLines searchSet = folderManipulator.search(params.getSearchString());
 		PrintFileMatchOps printer = new PrintFileMatchOps();
 		printer.writer = System.out;
 
 		Enum<?> fileOp = params.getOperation();
-		boolean isDebugOp = false;
-		if(fileOp instanceof FileLineOp) {
-			searchSet.manipulateLines((FileLineOp)fileOp, params.getReplaceString());
+		if(fileOp instanceof DebugOp) {
+			// debug operations only print the matches, so stream the files one at a time rather than loading the entire project
+			StreamingFileSearch streamSearch = new StreamingFileSearch(searchDir, params.getPathFilter(), cs, params.getParallelism(), !params.isIncludeBinary(), params.isGitignore());
+			streamSearch.search(params.createSearchMatcher(), (DebugOp)fileOp, printer::matchingFile, printer::matchingLine, printer::matchingLineCountPerFile, printer::matchingLineFromFile);
+
+			System.out.println("project: " + searchDir);
+			System.out.println(streamSearch.getFileCount() + " total files, " +
+					streamSearch.getMatchingSourceCount() + " files matched");
+			return;
 		}
-		else if(fileOp instanceof DebugOp) {
-			isDebugOp = true;
-			searchSet.lineOperation((DebugOp)fileOp, printer::matchingFile, printer::matchingLine, printer::matchingLineCountPerFile, printer::matchingLineFromFile);
-		}
-		else {
+		else if(!(fileOp instanceof FileLineOp)) {
 			throw new IllegalStateException("unknown file operation '" + fileOp + "'");
 		}
 
-		if(!isDebugOp) {
-			// save the files
-			folderManipulator.saveModifiedFiles(cs);
-			// print the list of modified files
-			System.out.println("project base folder: " + searchDir);
-			searchSet.forEachFile((f, fileInfo) -> {
-				System.out.println("modified: " + searchDir.relativize(f.toPath()));
-			});
+		FileManipulator folderManipulator = new FileManipulator(searchDir, params.getPathFilter(), cs, newline, params.createLoadSettings());
+		if(params.isIncremental()) {
+			folderManipulator.enableSearchIndex();
+		}
+		ManipulateFileLines searchSet = folderManipulator.search(params.createSearchMatcher());
+		searchSet.manipulateLines((FileLineOp)fileOp, params.getReplaceString());
+
+		// save the files
+		List<FileInfo> savedFiles = folderManipulator.saveModifiedFiles(cs);
+		// print the list of modified files
+		System.out.println("project base folder: " + searchDir);
+		for(FileInfo fileInfo : savedFiles) {
+			System.out.println("modified: " + searchDir.relativize(fileInfo.getFile().toPath()));
 		}
 
 		System.out.println("project: " + searchDir);
 		System.out.println(folderManipulator.getFileCount() + " total files, " +
-				searchSet.getMatchingSourceCount() + " files " + (isDebugOp ? "matched" : "modified"));
+				savedFiles.size() + " files modified");
 	}
 
 
@@ -76,6 +82,16 @@ public class FileManipulatorMain {
 		String folderStr = in.nextLine();
 		Path projFolder = Paths.get(folderStr);
 		FileManipulator folderManipulator = new FileManipulator(projFolder, null, cs, "\n");
+
+		System.out.print("use a search index cached in the folder to speed up repeated searches (y/n): ");
+		if("y".equalsIgnoreCase(in.nextLine().trim())) {
+			folderManipulator.enableSearchIndex();
+		}
+		System.out.print("watch the folder and reload files changed by other programs (y/n): ");
+		if("y".equalsIgnoreCase(in.nextLine().trim())) {
+			folderManipulator.enableFileWatcher();
+		}
+
 		PrintFileMatchOps printer = new PrintFileMatchOps();
 		printer.writer = System.out;
 
@@ -107,18 +123,20 @@ public class FileManipulatorMain {
 				searchSet.lineOperation(debugOp, printer::matchingFile, printer::matchingLine, printer::matchingLineCountPerFile, printer::matchingLineFromFile);
 			}
 
+			int fileCount = searchSet.getMatchingSourceCount();
 			if(!isDebugOp) {
 				// save the files
-				folderManipulator.saveModifiedFiles(cs);
+				List<FileInfo> savedFiles = folderManipulator.saveModifiedFiles(cs);
+				fileCount = savedFiles.size();
 				// print the list of modified files
 				System.out.println("project base folder: " + projFolder);
-				searchSet.forEachFile((f, fileInfo) -> {
-					System.out.println("modified: " + projFolder.relativize(f.toPath()));
-				});
+				for(FileInfo fileInfo : savedFiles) {
+					System.out.println("modified: " + projFolder.relativize(fileInfo.getFile().toPath()));
+				}
 			}
 
 			System.out.println(folderManipulator.getFileCount() + " total files, " +
-					searchSet.getMatchingSourceCount() + " files " + (isDebugOp ? "matched" : "modified"));
+					fileCount + " files " + (isDebugOp ? "matched" : "modified"));
 
 			System.out.println("current project: " + projFolder);
 		}
@@ -173,7 +191,15 @@ public class FileManipulatorMain {
 			cs = Charset.defaultCharset();
 		}
 
-		manipulateFileArgs(args, cs);
+		if(args.length > 0 && "-daemon".equals(args[0])) {
+			FileManipulatorDaemon.runDaemon(Arrays.asList(args).subList(1, args.length), cs);
+		}
+		else if(args.length > 0 && "-client".equals(args[0])) {
+			System.exit(FileManipulatorDaemon.runClient(Arrays.asList(args).subList(1, args.length), cs, System.out));
+		}
+		else {
+			manipulateFileArgs(args, cs);
+		}
 	}
 
 }
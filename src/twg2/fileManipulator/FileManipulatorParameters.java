@@ -9,12 +9,14 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Predicate;
 
 import twg2.cli.ParameterBuilder;
 import twg2.cli.ParameterData;
 import twg2.cli.ParameterSet;
 import twg2.collections.builder.ListUtil;
 import twg2.collections.builder.MapBuilder;
+import twg2.fileManipulator.FileLoadSettings.LineStorage;
 import twg2.fileManipulator.ManipulateLines.DebugOp;
 import twg2.fileManipulator.ManipulateLines.FileLineOp;
 
@@ -39,9 +41,19 @@ public class FileManipulatorParameters {
 	List<String> includeContains;
 	List<String> includeStartsWith;
 	List<String> includeEndsWith;
+	/** compiled from the include, exclude, and file name patterns the first time a file name is matched, null when the patterns change */
+	volatile PathFilter pathFilter;
 	String searchString;
+	boolean searchRegex;
 	Enum<?> operation;
 	String replaceString;
+	int parallelism = 1;
+	boolean incremental;
+	boolean compact;
+	boolean offHeap;
+	boolean lazy;
+	boolean gitignore;
+	boolean includeBinary;
 
 
 	public FileManipulatorParameters(Charset cs) {
@@ -61,13 +73,25 @@ public class FileManipulatorParameters {
 
 
 	public void setSearchDirectory(String dir) {
+		resolveSearchDirectory(dir);
+		if(dir != null && dir.startsWith(wildcardPathPrefix)) {
+			System.out.println("original path: " + dir.substring(wildcardPathPrefix.length()));
+		}
+		System.out.println("project folder: " + this.searchDir);
+		System.out.println("file pattern: " + this.fileNamePattern);
+	}
+
+
+	/** Set the search directory and file name pattern the same way as {@link #setSearchDirectory(String)} without printing them
+	 */
+	void resolveSearchDirectory(String dir) {
 		if(dir != null && dir.startsWith(wildcardPathPrefix)) {
 			// remove the wildcard prefix
 			dir = dir.substring(wildcardPathPrefix.length());
-			System.out.println("original path: " + dir);
 
 			int firstWildcardIndex = dir.indexOf('*');
 			this.fileNamePattern = dir.replace('\\', '/').replace("*", ".*?");
+			this.pathFilter = null;
 			// get the portion of the path up to the last separator char, for example, gets "/users/public/tmp" from "matching /users/public/tmp/*.txt"
 			String beforeWildcardStr = dir.substring(0, firstWildcardIndex);
 			String staticPathPortion = dir.substring(0, Math.max(beforeWildcardStr.lastIndexOf('/'), beforeWildcardStr.lastIndexOf('\\')));
@@ -93,8 +117,6 @@ public class FileManipulatorParameters {
 				throw e;
 			}
 		}
-		System.out.println("project folder: " + this.searchDir);
-		System.out.println("file pattern: " + this.fileNamePattern);
 	}
 
 
@@ -116,6 +138,7 @@ public class FileManipulatorParameters {
 
 	public void setExcludePatterns(List<String> excludePatterns) {
 		this.excludePatterns = excludePatterns;
+		this.pathFilter = null;
 		if(excludePatterns != null) {
 			for(String pattern : excludePatterns) {
 				int patternLen = pattern.length();
@@ -163,6 +186,7 @@ public class FileManipulatorParameters {
 
 	public void setIncludePatterns(List<String> includePatterns) {
 		this.includePatterns = includePatterns;
+		this.pathFilter = null;
 		if(includePatterns != null) {
 			for(String pattern : includePatterns) {
 				int patternLen = pattern.length();
@@ -199,63 +223,27 @@ public class FileManipulatorParameters {
 
 	public boolean isFileNameMatch(String fileName) {
 		compareCount++;
-		List<String> patterns;
-		if(this.includePatterns != null) {
-			boolean match = false;
-			if((patterns = this.includeContains) != null) {
-				for(int i = 0, size = patterns.size(); i < size; i++) {
-					if(fileName.indexOf(patterns.get(i)) > -1) {
-						match = true;
-						break;
-					}
-				}
-			}
-			if((patterns = this.includeStartsWith) != null) {
-				for(int i = 0, size = patterns.size(); i < size; i++) {
-					if(fileName.startsWith(patterns.get(i))) {
-						match = true;
-						break;
-					}
-				}
-			}
-			if((patterns = this.includeEndsWith) != null) {
-				for(int i = 0, size = patterns.size(); i < size; i++) {
-					if(fileName.endsWith(patterns.get(i))) {
-						match = true;
-						break;
-					}
-				}
-			}
-			if(!match) return false;
-		}
-		if(this.excludePatterns != null) {
-			if((patterns = this.excludeContains) != null) {
-				for(int i = 0, size = patterns.size(); i < size; i++) {
-					if(fileName.indexOf(patterns.get(i)) > -1) {
-						return false;
-					}
-				}
-			}
-			if((patterns = this.excludeStartsWith) != null) {
-				for(int i = 0, size = patterns.size(); i < size; i++) {
-					if(fileName.startsWith(patterns.get(i))) {
-						return false;
-					}
-				}
-			}
-			if((patterns = this.excludeEndsWith) != null) {
-				for(int i = 0, size = patterns.size(); i < size; i++) {
-					if(fileName.endsWith(patterns.get(i))) {
-						return false;
-					}
-				}
-			}
-		}
-		if(this.fileNamePattern != null) {
-			return fileName.matches(this.fileNamePattern);
+		return getCompiledPathFilter().test(fileName);
+	}
+
+
+	/**
+	 * @return a filter which matches the same paths as {@link #isFileNameMatch(String)}. Unlike a reference to {@code isFileNameMatch()},
+	 * this filter also allows {@link FileManipulator} and {@link StreamingFileSearch} to skip excluded folders without listing their contents
+	 */
+	public Predicate<String> getPathFilter() {
+		return getCompiledPathFilter();
+	}
+
+
+	private PathFilter getCompiledPathFilter() {
+		PathFilter filter = this.pathFilter;
+		if(filter == null) {
+			filter = new PathFilter(this.includePatterns != null, this.includeContains, this.includeStartsWith, this.includeEndsWith,
+					this.excludePatterns != null, this.excludeContains, this.excludeStartsWith, this.excludeEndsWith, this.fileNamePattern);
+			this.pathFilter = filter;
 		}
-		// match all files by default
-		return true;
+		return filter;
 	}
 
 
@@ -269,6 +257,24 @@ public class FileManipulatorParameters {
 	}
 
 
+	public boolean isSearchRegex() {
+		return searchRegex;
+	}
+
+
+	public void setSearchRegex(boolean searchRegex) {
+		this.searchRegex = searchRegex;
+	}
+
+
+	/**
+	 * @return a {@link RegexMatcher} for the search string if {@link #isSearchRegex()} is true, else a literal {@link StringMatcher}
+	 */
+	public StringMatcher createSearchMatcher() {
+		return searchRegex ? new RegexMatcher(searchString) : StringMatcher.of(searchString);
+	}
+
+
 	public Enum<?> getOperation() {
 		return operation;
 	}
@@ -289,6 +295,89 @@ public class FileManipulatorParameters {
 	}
 
 
+	public int getParallelism() {
+		return parallelism;
+	}
+
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(parallelism, 1);
+	}
+
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+
+	public boolean isCompact() {
+		return compact;
+	}
+
+
+	public void setCompact(boolean compact) {
+		this.compact = compact;
+	}
+
+
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+
+	public void setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
+	}
+
+
+	public boolean isLazy() {
+		return lazy;
+	}
+
+
+	public void setLazy(boolean lazy) {
+		this.lazy = lazy;
+	}
+
+
+	public boolean isGitignore() {
+		return gitignore;
+	}
+
+
+	public void setGitignore(boolean gitignore) {
+		this.gitignore = gitignore;
+	}
+
+
+	public boolean isIncludeBinary() {
+		return includeBinary;
+	}
+
+
+	public void setIncludeBinary(boolean includeBinary) {
+		this.includeBinary = includeBinary;
+	}
+
+
+	/**
+	 * @return the settings to load the project folder with
+	 */
+	public FileLoadSettings createLoadSettings() {
+		FileLoadSettings settings = new FileLoadSettings(parallelism, incremental, offHeap ? LineStorage.OFF_HEAP : (compact ? LineStorage.COMPACT : LineStorage.STRINGS));
+		settings.setLazy(lazy);
+		settings.setEvictable(lazy);
+		settings.setUseIgnoreFiles(gitignore);
+		settings.setSkipBinaryFiles(!includeBinary);
+		return settings;
+	}
+
+
 	public static final ParameterSet<String> createParameterParser(FileManipulatorParameters params) {
 		ParameterData<String, String> projFolderParam = ParameterBuilder.newText()
 				.setNameAndAliases("-projectPath")
@@ -306,6 +395,14 @@ public class FileManipulatorParameters {
 				.setRequired(true)
 				.build();
 
+		ParameterData<String, Boolean> searchRegexParam = ParameterBuilder.newFlag()
+				.setNameAndAliases("-searchRegex")
+				.setSetter(params::setSearchRegex)
+				.setHelpMessage("optional flag, treat the search string as a regular expression, replacement text for " + FileLineOp.REPLACE_MATCHING_PORTION + " can contain group references such as $1")
+				.setRequestParameterMessage("search using a regular expression: ")
+				.setRequired(false)
+				.build();
+
 		@SuppressWarnings({ "unchecked", "rawtypes" })
 		ParameterData<String, Enum<?>> operationParam = ParameterBuilder.<Enum<?>>newEnumMap(
 				MapBuilder.concat(MapBuilder.immutableEnumNames(FileLineOp.class), MapBuilder.immutableEnumNames(DebugOp.class)),
@@ -341,8 +438,65 @@ public class FileManipulatorParameters {
 				.setRequired(true)
 				.build();
 
+		ParameterData<String, Integer> parallelismParam = ParameterBuilder.newInteger()
+				.setNameAndAliases("-parallelism")
+				.setSetter(params::setParallelism)
+				.setHelpMessage("optional number of threads to use when walking the project folder and loading files, defaults to 1")
+				.setRequestParameterMessage("enter the number of threads to load files with: ")
+				.setRequired(false)
+				.build();
+
+		ParameterData<String, Boolean> incrementalParam = ParameterBuilder.newFlag()
+				.setNameAndAliases("-incremental")
+				.setSetter(params::setIncremental)
+				.setHelpMessage("optional flag, keep a snapshot manifest and search index in the project folder so that later runs only read files which have changed or which may contain the search text")
+				.setRequestParameterMessage("load the project incrementally: ")
+				.setRequired(false)
+				.build();
+
+		ParameterData<String, Boolean> compactParam = ParameterBuilder.newFlag()
+				.setNameAndAliases("-compact")
+				.setSetter(params::setCompact)
+				.setHelpMessage("optional flag, store each file's contents as bytes and decode lines when they are accessed, uses less memory for large projects")
+				.setRequestParameterMessage("use compact line storage: ")
+				.setRequired(false)
+				.build();
+
+		ParameterData<String, Boolean> offHeapParam = ParameterBuilder.newFlag()
+				.setNameAndAliases("-offHeap")
+				.setSetter(params::setOffHeap)
+				.setHelpMessage("optional flag, the same as -compact, but store each file's contents outside of the Java heap to keep garbage collection pauses short for large projects, the JVM's -XX:MaxDirectMemorySize limit (by default the maximum heap size) may need to be raised")
+				.setRequestParameterMessage("use off-heap line storage: ")
+				.setRequired(false)
+				.build();
+
+		ParameterData<String, Boolean> lazyParam = ParameterBuilder.newFlag()
+				.setNameAndAliases("-lazy")
+				.setSetter(params::setLazy)
+				.setHelpMessage("optional flag, read files the first time they are searched and allow unmodified files to be unloaded when memory is low")
+				.setRequestParameterMessage("load files lazily: ")
+				.setRequired(false)
+				.build();
+
+		ParameterData<String, Boolean> gitignoreParam = ParameterBuilder.newFlag()
+				.setNameAndAliases("-gitignore")
+				.setSetter(params::setGitignore)
+				.setHelpMessage("optional flag, skip files and folders ignored by the '.gitignore' and '.ignore' files in the project folder")
+				.setRequestParameterMessage("use .gitignore files: ")
+				.setRequired(false)
+				.build();
+
+		ParameterData<String, Boolean> includeBinaryParam = ParameterBuilder.newFlag()
+				.setNameAndAliases("-includeBinary")
+				.setSetter(params::setIncludeBinary)
+				.setHelpMessage("optional flag, search files which appear to be binary (such as images and archives), by default they are skipped")
+				.setRequestParameterMessage("include binary files: ")
+				.setRequired(false)
+				.build();
+
 		ParameterSet<String> paramParser = ParameterSet.newParameterSet(Arrays.asList(projFolderParam,
-				searchTextParam, operationParam, replaceTextParam, excludePatternsParam, includePatternsParam), true, "-help", "help");
+				searchTextParam, searchRegexParam, operationParam, replaceTextParam, excludePatternsParam, includePatternsParam, parallelismParam,
+				incrementalParam, compactParam, offHeapParam, lazyParam, gitignoreParam, includeBinaryParam), true, "-help", "help");
 
 		return paramParser;
 	}
@@ -0,0 +1,277 @@
+package twg2.fileManipulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/** Saves {@link FileInfo} lines back to the file system.
+ * Each file is written to a temporary file in the same folder, flushed to disk, and then atomically
+ * moved over the original file, so a crash never leaves a partially written file.
+ * Symbolic links are resolved first so the link's target is replaced rather than the link.
+ * The temporary file is given the original file's POSIX permissions, and its owner and group if the current user is allowed to set them.
+ * Otherwise the saved file is owned by the current user and group, since replacing a file creates a new file.<br>
+ * Each thread reuses a {@link CharsetEncoder} per charset and a direct {@link ByteBuffer} to encode lines into
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class FileSaver {
+	/** the maximum number of files written by a single task when saving files concurrently */
+	static final int SAVE_BATCH_SIZE = 4;
+	/** the size of each thread's encoding buffer */
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final ThreadLocal<ByteBuffer> writeBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+	private static final ThreadLocal<Map<Charset, CharsetEncoder>> encoders = ThreadLocal.withInitial(() -> new HashMap<>());
+
+
+	private FileSaver() { throw new AssertionError("cannot instantiate static class FileSaver"); }
+
+
+	/** Save a list of files and mark them as unmodified.  Each file is encoded once into a temporary file while its length and CRC32C
+	 * checksum are computed.  If the file has a known {@link FileInfo#getContentLength() content length} and the new length and checksum
+	 * are the same, the temporary file is deleted and the original file is left untouched, otherwise the temporary file replaces the
+	 * original and the file's recorded content length, checksum, and last modified time are updated
+	 * @param files the files to save
+	 * @param cs the charset to encode the files with
+	 * @param newline the line separator to write after each line of files without a {@link FileInfo#getFormat() format}
+	 * or without a detected {@link FileFormat#getNewline() newline}
+	 * @param forceNewline true to write {@code newline} after every line of every file instead of each file's detected line terminators,
+	 * each file's trailing newline and byte order mark are still kept
+	 * @param maxConcurrentWrites the maximum number of files to write at the same time
+	 * @return the files which were written, in the same order as {@code files}, excluding files whose contents were unchanged
+	 * @throws IOException if there is an error writing any of the files, the remaining files may or may not be saved
+	 */
+	public static List<FileInfo> save(List<FileInfo> files, Charset cs, String newline, boolean forceNewline, int maxConcurrentWrites) throws IOException {
+		Set<FileInfo> writtenFiles = ConcurrentHashMap.newKeySet();
+		try {
+			ParallelTasks.forEach(files, maxConcurrentWrites, SAVE_BATCH_SIZE, (fileInfo) -> {
+				try {
+					FileFormat format = fileInfo.getFormat();
+					if(format == null) {
+						format = new FileFormat(newline, true, false);
+					}
+					else if(forceNewline || format.getNewline() == null) {
+						format = new FileFormat(newline, format.isEndsWithNewline(), format.hasBom());
+					}
+					Path path = fileInfo.getFile().toPath();
+					ContentHash.Output written = writeAtomically(path, fileInfo.getLines(), cs, format, !forceNewline, fileInfo.getContentLength(), fileInfo.getContentHash());
+					if(!written.matches(fileInfo)) {
+						fileInfo.setContentHash(written.getLength(), written.getHash());
+						fileInfo.setLastModified(Files.getLastModifiedTime(path).toMillis());
+						writtenFiles.add(fileInfo);
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(fileInfo.getFile().toString(), e);
+				}
+				fileInfo.setLinesModified(false);
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return files.stream().filter(writtenFiles::contains).collect(Collectors.toList());
+	}
+
+
+	/** Write lines to a temporary file in the same folder as the destination file and then atomically move it over the destination.
+	 * If the destination is a symbolic link, the link's target is replaced.  The destination's POSIX permissions are kept,
+	 * its owner and group are only kept if the current user is allowed to set them
+	 * @param file the destination file
+	 * @param lines the lines to write
+	 * @param cs the charset to encode the lines with
+	 * @param format the line separator to write between lines, whether to write a line separator after the last line,
+	 * and whether to write a byte order mark.  Lines from an {@link EditableLines} list are written with their own terminator
+	 * @return the length and checksum of the bytes written
+	 * @throws IOException if there is an error writing or moving the file
+	 */
+	public static ContentHash.Output writeAtomically(Path file, List<String> lines, Charset cs, FileFormat format) throws IOException {
+		return writeAtomically(file, lines, cs, format, true, -1, 0);
+	}
+
+
+	/** Write lines to a temporary file and move it over the destination, unless the written bytes are identical to the destination's
+	 * current contents, see {@link #writeAtomically(Path, List, Charset, FileFormat)}
+	 * @param lineNewlines true to write lines with the terminator they were read with, see {@link #writeLines(WritableByteChannel, List, FileFormat, boolean, CharsetEncoder, ByteBuffer)}
+	 * @param currentLength the length in bytes of the destination's current contents, -1 if unknown
+	 * @param currentHash the CRC32C checksum of the destination's current contents
+	 * @return the length and checksum of the bytes written, if they equal {@code currentLength} and {@code currentHash}
+	 * the temporary file was deleted and the destination was not replaced
+	 */
+	static ContentHash.Output writeAtomically(Path file, List<String> lines, Charset cs, FileFormat format, boolean lineNewlines, long currentLength, long currentHash) throws IOException {
+		Path absFile;
+		try {
+			absFile = file.toRealPath();
+		} catch (NoSuchFileException e) {
+			absFile = file.toAbsolutePath();
+		}
+		Path tmpFile = Files.createTempFile(absFile.getParent(), "." + absFile.getFileName() + ".", ".tmp");
+		try {
+			copyAttributes(absFile, tmpFile);
+			ContentHash.Output written = write(tmpFile, lines, cs, format, lineNewlines);
+			if(currentLength > -1 && written.getLength() == currentLength && written.getHash() == currentHash) {
+				Files.delete(tmpFile);
+			}
+			else {
+				replaceFile(tmpFile, absFile);
+			}
+			return written;
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tmpFile);
+			throw e;
+		}
+	}
+
+
+	private static ContentHash.Output write(Path file, List<String> lines, Charset cs, FileFormat format, boolean lineNewlines) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ContentHash.Output written = new ContentHash.Output(channel);
+			writeLines(written, lines, format, lineNewlines, getEncoder(cs), writeBuffer.get());
+			channel.force(true);
+			return written;
+		}
+	}
+
+
+	/** Move a temporary file over a file, atomically if the file system supports it
+	 * @param tmpFile the temporary file
+	 * @param file the file to replace
+	 * @throws IOException if there is an error moving the file
+	 */
+	static void replaceFile(Path tmpFile, Path file) throws IOException {
+		try {
+			Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+
+	/** Encode lines into a buffer, writing the buffer to a channel each time it fills up.
+	 * Lines from an {@link EditableLines} list are written with the terminator they were read with, if they have one
+	 * @param channel the channel to write to
+	 * @param lines the lines to write
+	 * @param format the line separator to write after lines without a terminator of their own, whether to write a line separator
+	 * after the last line, and whether to write a byte order mark
+	 * @param lineNewlines true to write each line's own terminator, false to write the {@code format}'s line separator after every line
+	 * @param encoder the encoder to encode the lines with, reset by this method
+	 * @param buf the buffer to encode into, cleared by this method
+	 * @throws CharacterCodingException if a line contains malformed or unmappable characters
+	 * @throws IOException if there is an error writing to the channel
+	 */
+	static void writeLines(WritableByteChannel channel, List<String> lines, FileFormat format, boolean lineNewlines, CharsetEncoder encoder, ByteBuffer buf) throws IOException {
+		encoder.reset();
+		buf.clear();
+		if(format.hasBom()) {
+			encode(channel, CharBuffer.wrap("\uFEFF"), encoder, buf, false);
+		}
+		EditableLines editableLines = lineNewlines && lines instanceof EditableLines ? (EditableLines)lines : null;
+		// the newline to write for each newline type, lines without a terminator of their own use the format's newline
+		CharBuffer[] newlineChars = new CharBuffer[EditableLines.NEWLINES.length];
+		newlineChars[EditableLines.NO_NEWLINE] = CharBuffer.wrap(format.getNewline());
+		for(int i = EditableLines.NO_NEWLINE + 1; i < newlineChars.length; i++) {
+			newlineChars[i] = CharBuffer.wrap(EditableLines.NEWLINES[i]);
+		}
+		for(int i = 0, size = lines.size(), last = (format.isEndsWithNewline() ? size : size - 1); i < size; i++) {
+			encode(channel, CharBuffer.wrap(lines.get(i)), encoder, buf, false);
+			if(i < last) {
+				CharBuffer newline = newlineChars[editableLines != null ? editableLines.getNewlineType(i) : EditableLines.NO_NEWLINE];
+				encode(channel, newline, encoder, buf, false);
+				newline.rewind();
+			}
+		}
+		encode(channel, CharBuffer.allocate(0), encoder, buf, true);
+		while(encoder.flush(buf).isOverflow()) {
+			drain(channel, buf);
+		}
+		drain(channel, buf);
+	}
+
+
+	private static void encode(WritableByteChannel channel, CharBuffer chars, CharsetEncoder encoder, ByteBuffer buf, boolean endOfInput) throws IOException {
+		while(true) {
+			CoderResult res = encoder.encode(chars, buf, endOfInput);
+			if(res.isOverflow()) {
+				drain(channel, buf);
+			}
+			else if(res.isError()) {
+				res.throwException();
+			}
+			else {
+				break;
+			}
+		}
+		// the encoder leaves a trailing high surrogate in the input waiting for a low surrogate, but lines and line separators are encoded separately
+		if(chars.hasRemaining()) {
+			throw new MalformedInputException(chars.remaining());
+		}
+	}
+
+
+	private static void drain(WritableByteChannel channel, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while(buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+
+
+	private static CharsetEncoder getEncoder(Charset cs) {
+		return encoders.get().computeIfAbsent(cs, (c) -> c.newEncoder());
+	}
+
+
+	/** Copy a file's POSIX permissions (if supported) to the temporary file replacing it, since temporary files are created
+	 * readable and writable by the owner only.  The file's owner and group are also copied if the current user is allowed to
+	 * set them, only privileged users can give away files or use groups they are not a member of
+	 */
+	private static void copyAttributes(Path file, Path tmpFile) throws IOException {
+		PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+		PosixFileAttributeView tmpView = Files.getFileAttributeView(tmpFile, PosixFileAttributeView.class);
+		if(view == null || tmpView == null) {
+			return;
+		}
+		PosixFileAttributes attrs;
+		try {
+			attrs = view.readAttributes();
+		} catch (NoSuchFileException e) {
+			// the original file no longer exists, keep the temporary file's default attributes
+			return;
+		}
+		PosixFileAttributes tmpAttrs = tmpView.readAttributes();
+		try {
+			if(!attrs.group().equals(tmpAttrs.group())) {
+				tmpView.setGroup(attrs.group());
+			}
+			if(!attrs.owner().equals(tmpAttrs.owner())) {
+				tmpView.setOwner(attrs.owner());
+			}
+		} catch (FileSystemException e) {
+			// not permitted, the saved file is owned by the current user and group
+		}
+		tmpView.setPermissions(attrs.permissions());
+	}
+
+}
@@ -0,0 +1,188 @@
+package twg2.fileManipulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/** Walks a directory tree and passes each file that matches a path filter, along with
+ * the folder containing it, to a consumer.
+ * If the path filter is a {@link PathFilter}, folders whose files are all excluded are skipped without being listed.
+ * This library's own cache, manifest, and daemon files are never passed to the consumer, see {@link #isCacheFile(File)}.
+ * Symbolic links are followed, links to one of their own parent folders are skipped.
+ * The tree can be walked on the calling thread or concurrently by a fork-join pool
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class FileWalker {
+	/** the maximum number of files in a single folder that one fork-join task processes before splitting */
+	static final int FILE_BATCH_SIZE = 16;
+
+
+	private FileWalker() { throw new AssertionError("cannot instantiate static class FileWalker"); }
+
+
+	/** Call a consumer for each file in a folder and its sub-folders
+	 * @param rootFolder the folder to walk
+	 * @param pathFilter a filter for the files found in the {@code rootFolder}, the path of each file (with
+	 * '\' separators converted to '/') is passed to this filter. Files which fail the filter are not passed
+	 * to {@code fileConsumer}. Null allowed
+	 * @param parallelism the number of threads to use, values less than 2 walk the tree serially on the
+	 * calling thread. If greater than 1, {@code fileConsumer} must be thread-safe
+	 * @param fileConsumer the consumer to pass each folder and file to
+	 */
+	public static void forEachFile(File rootFolder, Predicate<String> pathFilter, int parallelism, BiConsumer<File, File> fileConsumer) {
+		forEachFile(rootFolder, pathFilter, null, parallelism, fileConsumer);
+	}
+
+
+	/** Call a consumer for each file in a folder and its sub-folders which is not ignored by the '.gitignore' and '.ignore' files in the folders
+	 * @param ignoreFiles the ignore files of the {@code rootFolder}, ignored folders are not walked and ignored files are not passed to
+	 * {@code fileConsumer}. Null allowed
+	 * @see #forEachFile(File, Predicate, int, BiConsumer)
+	 */
+	public static void forEachFile(File rootFolder, Predicate<String> pathFilter, IgnoreFiles ignoreFiles, int parallelism, BiConsumer<File, File> fileConsumer) {
+		if(parallelism < 2) {
+			try {
+				Files.walkFileTree(rootFolder.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+						boolean skip = isFolderExcluded(pathFilter, dir.toFile()) || (ignoreFiles != null && ignoreFiles.isIgnored(dir, true));
+						return skip ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+						File file = path.toFile();
+						if(!isCacheFile(file) && isPathMatch(pathFilter, file) && (ignoreFiles == null || !ignoreFiles.isIgnored(path, false))) {
+							fileConsumer.accept(file.getParentFile(), file);
+						}
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path path, IOException exc) {
+						// unreadable folders and symbolic link loops (FileSystemLoopException) are skipped
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		else {
+			if(!isFolderExcluded(pathFilter, rootFolder)) {
+				ParallelTasks.getPool(parallelism).invoke(new WalkFolderTask(rootFolder, pathFilter, ignoreFiles, fileConsumer));
+			}
+		}
+	}
+
+
+	/**
+	 * @return true if {@code file} is a {@link TrigramIndex} cache file, {@link SnapshotManifest} file, or {@link FileManipulatorDaemon} file,
+	 * which are never searched or loaded since they are not project files and the daemon file contains an access token
+	 */
+	static boolean isCacheFile(File file) {
+		String name = file.getName();
+		return TrigramIndex.CACHE_FILE_NAME.equals(name) || SnapshotManifest.MANIFEST_FILE_NAME.equals(name) || FileManipulatorDaemon.DAEMON_FILE_NAME.equals(name);
+	}
+
+
+	static boolean isPathMatch(Predicate<String> pathFilter, File file) {
+		// TODO poor workaround for backslashing acting as escape chars in regex, fix once when proper file wild pattern searching is implemented
+		return pathFilter == null || pathFilter.test(file.toString().replace('\\', '/'));
+	}
+
+
+	/**
+	 * @return true if {@code pathFilter} is a {@link PathFilter} which rejects every file in {@code folder}, so the folder does not need to be listed
+	 */
+	static boolean isFolderExcluded(Predicate<String> pathFilter, File folder) {
+		return pathFilter instanceof PathFilter && ((PathFilter)pathFilter).isFolderExcluded(folder.toString().replace('\\', '/') + "/");
+	}
+
+
+	/**
+	 * @return true if {@code folder} is a symbolic link to {@code parentFolder} or one of its parent folders
+	 */
+	private static boolean isLinkLoop(File parentFolder, File folder) {
+		Path path = folder.toPath();
+		if(!Files.isSymbolicLink(path)) {
+			return false;
+		}
+		try {
+			return parentFolder.toPath().toRealPath().startsWith(path.toRealPath());
+		} catch (IOException e) {
+			return true;
+		}
+	}
+
+
+
+
+	/** Lists a folder, forks a task for each sub-folder and processes the folder's files in batches of {@link FileWalker#FILE_BATCH_SIZE}
+	 * @author TeamworkGuy2
+	 * @since 2026-10-18
+	 */
+	static final class WalkFolderTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final File folder;
+		private final Predicate<String> pathFilter;
+		private final IgnoreFiles ignoreFiles;
+		private final BiConsumer<File, File> fileConsumer;
+
+
+		public WalkFolderTask(File folder, Predicate<String> pathFilter, IgnoreFiles ignoreFiles, BiConsumer<File, File> fileConsumer) {
+			this.folder = folder;
+			this.pathFilter = pathFilter;
+			this.ignoreFiles = ignoreFiles;
+			this.fileConsumer = fileConsumer;
+		}
+
+
+		@Override
+		protected void compute() {
+			File[] children = folder.listFiles();
+			if(children == null) {
+				return;
+			}
+
+			List<RecursiveAction> subTasks = new ArrayList<>();
+			List<File> files = new ArrayList<>();
+			for(File child : children) {
+				if(child.isDirectory()) {
+					if(!isFolderExcluded(pathFilter, child) && (ignoreFiles == null || !ignoreFiles.isIgnored(child.toPath(), true)) && !isLinkLoop(folder, child)) {
+						subTasks.add(new WalkFolderTask(child, pathFilter, ignoreFiles, fileConsumer));
+					}
+				}
+				else {
+					files.add(child);
+				}
+			}
+
+			if(files.size() > 0) {
+				subTasks.add(new ParallelTasks.BatchTask<File>(files, 0, files.size(), FILE_BATCH_SIZE, (file) -> {
+					if(!isCacheFile(file) && isPathMatch(pathFilter, file) && (ignoreFiles == null || !ignoreFiles.isIgnored(file.toPath(), false))) {
+						fileConsumer.accept(folder, file);
+					}
+				}));
+			}
+
+			invokeAll(subTasks);
+		}
+
+	}
+
+}
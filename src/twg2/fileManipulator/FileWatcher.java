@@ -0,0 +1,188 @@
+package twg2.fileManipulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/** Watches a folder and its sub-folders for created, modified, and deleted files using a {@link WatchService}.
+ * Sub-folders which {@link FileWalker} would not walk, because a {@link PathFilter} excludes every file in them or they are
+ * ignored by '.gitignore' or '.ignore' files, are not watched.
+ * A background thread collects the changed paths, repeated events for the same path are merged.
+ * {@link #takeChanges()} returns the changed paths once no new events have arrived for {@link #DEBOUNCE_MILLIS},
+ * so that files which are in the middle of being written are not read until the writes settle
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class FileWatcher implements Closeable {
+	/** how long to wait after the last event before returning changes */
+	static final long DEBOUNCE_MILLIS = 100;
+	/** the maximum time {@link #takeChanges()} waits for events to settle */
+	static final long MAX_WAIT_MILLIS = 1000;
+
+	private final WatchService watchService;
+	private final Predicate<String> pathFilter;
+	private final IgnoreFiles ignoreFiles;
+	private final Map<WatchKey, Path> keyFolders = new ConcurrentHashMap<>();
+	private final Thread thread;
+	// guarded by 'this'
+	private final Set<Path> pending = new HashSet<>();
+	private boolean overflow;
+	private long lastEventNanos;
+
+
+	/** Start watching a folder and its sub-folders
+	 * @param rootFolder the folder to watch
+	 * @throws IOException if there is an error creating the watch service or registering the folders
+	 */
+	public FileWatcher(Path rootFolder) throws IOException {
+		this(rootFolder, null, null);
+	}
+
+
+	/** Start watching a folder and the sub-folders which {@link FileWalker#forEachFile(java.io.File, Predicate, IgnoreFiles, int, java.util.function.BiConsumer)}
+	 * would walk with the same filter and ignore files
+	 * @param rootFolder the folder to watch
+	 * @param pathFilter the filter for the files in the {@code rootFolder}, if it is a {@link PathFilter}, folders whose files are all excluded are not watched. Null allowed
+	 * @param ignoreFiles the ignore files of the {@code rootFolder}, ignored folders are not watched. Null allowed
+	 * @throws IOException if there is an error creating the watch service or registering the folders
+	 */
+	public FileWatcher(Path rootFolder, Predicate<String> pathFilter, IgnoreFiles ignoreFiles) throws IOException {
+		this.pathFilter = pathFilter;
+		this.ignoreFiles = ignoreFiles;
+		this.watchService = rootFolder.getFileSystem().newWatchService();
+		try {
+			registerAll(rootFolder, null);
+		} catch (IOException e) {
+			watchService.close();
+			throw e;
+		}
+		this.thread = new Thread(this::run, "file-watcher-" + rootFolder.getFileName());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+
+	/** Get the paths which have been created, modified, or deleted since the last call, waiting up to {@link #MAX_WAIT_MILLIS}
+	 * for events to settle if the last event arrived less than {@link #DEBOUNCE_MILLIS} ago
+	 * @return the changed paths, empty if nothing changed, or null if events were lost and any file may have changed
+	 */
+	public synchronized Set<Path> takeChanges() {
+		long start = System.nanoTime();
+		while((pending.size() > 0 || overflow) && System.nanoTime() - start < MAX_WAIT_MILLIS * 1000000L) {
+			long waitMillis = DEBOUNCE_MILLIS - (System.nanoTime() - lastEventNanos) / 1000000L;
+			if(waitMillis <= 0) {
+				break;
+			}
+			try {
+				wait(waitMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+
+		if(overflow) {
+			overflow = false;
+			pending.clear();
+			return null;
+		}
+		Set<Path> changes = new HashSet<>(pending);
+		pending.clear();
+		return changes;
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+
+	private void run() {
+		try {
+			while(true) {
+				WatchKey key = watchService.take();
+				Path folder = keyFolders.get(key);
+				Set<Path> changed = new HashSet<>();
+				boolean lost = false;
+				for(WatchEvent<?> event : key.pollEvents()) {
+					if(event.kind() == StandardWatchEventKinds.OVERFLOW || folder == null) {
+						lost = true;
+						continue;
+					}
+					Path path = folder.resolve((Path)event.context());
+					changed.add(path);
+					// files created in a new folder before it was registered do not generate events, so add them now
+					if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+						try {
+							registerAll(path, changed);
+						} catch (IOException e) {
+							lost = true;
+						}
+					}
+				}
+				if(!key.reset()) {
+					keyFolders.remove(key);
+				}
+				addChanges(changed, lost);
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// stop watching
+		}
+	}
+
+
+	private synchronized void addChanges(Set<Path> changed, boolean lost) {
+		pending.addAll(changed);
+		overflow |= lost;
+		lastEventNanos = System.nanoTime();
+		notifyAll();
+	}
+
+
+	/** Register a folder and its sub-folders with the watch service, excluded and ignored folders are skipped
+	 * @param files if not null, the files found in the folders are added to this set
+	 */
+	private void registerAll(Path folder, Set<Path> files) throws IOException {
+		Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				if(FileWalker.isFolderExcluded(pathFilter, dir.toFile()) || (ignoreFiles != null && ignoreFiles.isIgnored(dir, true))) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+				keyFolders.put(key, dir);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if(files != null) {
+					files.add(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc) {
+				// the file was deleted or is not readable, ignore it
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+}
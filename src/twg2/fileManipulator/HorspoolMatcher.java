@@ -0,0 +1,60 @@
+package twg2.fileManipulator;
+
+import java.util.Arrays;
+
+/** A Boyer-Moore-Horspool {@link StringMatcher}, which skips up to the search string's length
+ * after each mismatch, so it outperforms {@link IndexOfMatcher} for long search strings.
+ * The bad character shift table is indexed by the low byte of each character, characters
+ * sharing a low byte share the smallest shift, which keeps the table small without skipping matches
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public final class HorspoolMatcher extends LiteralMatcher {
+	/** the minimum search string length {@link StringMatcher#of(String)} uses this matcher for */
+	public static final int MIN_LENGTH = 16;
+
+	private final char[] search;
+	private final int[] shifts;
+
+
+	public HorspoolMatcher(String searchStr) {
+		super(searchStr);
+		int len = searchStr.length();
+		this.search = searchStr.toCharArray();
+		this.shifts = new int[256];
+		Arrays.fill(this.shifts, Math.max(len, 1));
+		for(int i = 0; i < len - 1; i++) {
+			this.shifts[search[i] & 0xFF] = len - 1 - i;
+		}
+	}
+
+
+	@Override
+	public int indexOf(String str, int fromIndex) {
+		int len = search.length;
+		if(len == 0) {
+			return fromIndex <= str.length() ? Math.max(fromIndex, 0) : -1;
+		}
+		char last = search[len - 1];
+		for(int i = Math.max(fromIndex, 0), end = str.length() - len; i <= end; ) {
+			char ch = str.charAt(i + len - 1);
+			if(ch == last && matchesAt(str, i, len - 1)) {
+				return i;
+			}
+			i += shifts[ch & 0xFF];
+		}
+		return -1;
+	}
+
+
+	private boolean matchesAt(String str, int off, int count) {
+		char[] search = this.search;
+		for(int i = 0; i < count; i++) {
+			if(str.charAt(off + i) != search[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,333 @@
+package twg2.fileManipulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/** The '.gitignore' and '.ignore' files in a folder tree, each folder's ignore files are read and compiled once the first time
+ * a path in the folder is checked and then cached.<br>
+ * Rules follow the gitignore format: blank lines and lines starting with '#' are skipped, '!' negates a rule, a trailing '/' only
+ * matches folders, a rule containing a '/' before its end is relative to the folder containing the ignore file, other rules match
+ * a file or folder name at any depth, and '*', '?', '[...]', and '**' wildcards are supported.
+ * Rules in deeper folders take precedence over rules in parent folders, '.ignore' rules take precedence over '.gitignore' rules
+ * in the same folder, and later rules in a file take precedence over earlier ones.
+ * Files in an ignored folder cannot be re-included since ignored folders are not walked.
+ * Ignore files above the root folder are not read. '.git' folders are always ignored.<br>
+ * Thread safe
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class IgnoreFiles {
+	/** the ignore file names read from each folder, in increasing order of precedence */
+	static final String[] IGNORE_FILE_NAMES = { ".gitignore", ".ignore" };
+
+	private final Path rootFolder;
+	/** the rules which apply in each folder, folders without ignore files share their parent folder's rules */
+	private final Map<Path, Rules> folderRules = new ConcurrentHashMap<>();
+
+
+	/**
+	 * @param rootFolder the root folder of the tree, paths passed to this object must be relative to the same base as this path
+	 */
+	public IgnoreFiles(Path rootFolder) {
+		this.rootFolder = rootFolder;
+	}
+
+
+	/** Check whether a file or folder is ignored by the ignore files in its parent folders, not including whether one of its parent folders is ignored
+	 * @param path the path of a file or folder inside the root folder
+	 * @param isFolder whether {@code path} is a folder
+	 * @return true if the path is ignored
+	 * @throws UncheckedIOException if there is an error reading an ignore file
+	 */
+	public boolean isIgnored(Path path, boolean isFolder) {
+		Path parent = path.getParent();
+		if(parent == null || path.equals(rootFolder)) {
+			return false;
+		}
+		if(isFolder && ".git".equals(path.getFileName().toString())) {
+			return true;
+		}
+		return getRules(parent).isIgnored(path, isFolder);
+	}
+
+
+	/** Check whether a file or any of its parent folders below the root folder is ignored
+	 * @param file the path of a file inside the root folder
+	 * @return true if the file is ignored or is in an ignored folder
+	 * @throws UncheckedIOException if there is an error reading an ignore file
+	 */
+	public boolean isFileOrParentIgnored(Path file) {
+		for(Path folder = file.getParent(); folder != null && folder.startsWith(rootFolder) && !folder.equals(rootFolder); folder = folder.getParent()) {
+			if(isIgnored(folder, true)) {
+				return true;
+			}
+		}
+		return isIgnored(file, false);
+	}
+
+
+	/**
+	 * @return true if {@code fileName} is the name of an ignore file
+	 */
+	static boolean isIgnoreFileName(String fileName) {
+		for(String name : IGNORE_FILE_NAMES) {
+			if(name.equals(fileName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	private Rules getRules(Path folder) {
+		Rules rules = folderRules.get(folder);
+		if(rules == null) {
+			Path parentFolder = folder.getParent();
+			Rules parent = (parentFolder != null && !folder.equals(rootFolder) && parentFolder.startsWith(rootFolder)) ? getRules(parentFolder) : null;
+			try {
+				rules = Rules.read(folder, parent);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			Rules prev = folderRules.putIfAbsent(folder, rules);
+			rules = prev != null ? prev : rules;
+		}
+		return rules;
+	}
+
+
+
+
+	/** The compiled rules from the ignore files in one folder, linked to the rules from the nearest parent folder with ignore files
+	 * @author TeamworkGuy2
+	 * @since 2026-10-18
+	 */
+	static final class Rules {
+		private final Path folder;
+		private final Rule[] rules;
+		private final Rules parent;
+
+
+		private Rules(Path folder, Rule[] rules, Rules parent) {
+			this.folder = folder;
+			this.rules = rules;
+			this.parent = parent;
+		}
+
+
+		/** Read the ignore files in a folder
+		 * @return the folder's rules or {@code parent} if the folder does not contain any rules
+		 */
+		static Rules read(Path folder, Rules parent) throws IOException {
+			List<Rule> rules = new ArrayList<>();
+			for(String name : IGNORE_FILE_NAMES) {
+				try {
+					String content = new String(Files.readAllBytes(folder.resolve(name)), StandardCharsets.UTF_8);
+					for(String line : content.split("\r?\n")) {
+						Rule rule = Rule.parse(line);
+						if(rule != null) {
+							rules.add(rule);
+						}
+					}
+				} catch (NoSuchFileException e) {
+					// no ignore file
+				}
+			}
+			return rules.size() > 0 ? new Rules(folder, rules.toArray(new Rule[rules.size()]), parent) : parent;
+		}
+
+
+		boolean isIgnored(Path path, boolean isFolder) {
+			String name = path.getFileName().toString();
+			for(Rules node = this; node != null; node = node.parent) {
+				String relativePath = null;
+				Rule[] rules = node.rules;
+				// the last matching rule wins
+				for(int i = rules.length - 1; i > -1; i--) {
+					Rule rule = rules[i];
+					if(rule.folderOnly && !isFolder) {
+						continue;
+					}
+					boolean match;
+					if(rule.anchored) {
+						if(relativePath == null) {
+							relativePath = node.folder.relativize(path).toString().replace('\\', '/');
+						}
+						match = rule.matches(relativePath);
+					}
+					else {
+						match = rule.matches(name);
+					}
+					if(match) {
+						return !rule.negated;
+					}
+				}
+			}
+			return false;
+		}
+
+	}
+
+
+
+
+	/** A single compiled ignore rule
+	 * @author TeamworkGuy2
+	 * @since 2026-10-18
+	 */
+	static final class Rule {
+		final boolean negated;
+		final boolean folderOnly;
+		/** true if the rule matches a path relative to the ignore file's folder, false if it matches a file or folder name */
+		final boolean anchored;
+		/** for rules without wildcards the name to match, for rules of the form '*literal' the suffix to match, otherwise null */
+		private final String literal;
+		private final boolean suffix;
+		private final Pattern pattern;
+
+
+		private Rule(boolean negated, boolean folderOnly, boolean anchored, String literal, boolean suffix, Pattern pattern) {
+			this.negated = negated;
+			this.folderOnly = folderOnly;
+			this.anchored = anchored;
+			this.literal = literal;
+			this.suffix = suffix;
+			this.pattern = pattern;
+		}
+
+
+		boolean matches(String str) {
+			if(literal != null) {
+				return suffix ? str.endsWith(literal) : str.equals(literal);
+			}
+			return pattern.matcher(str).matches();
+		}
+
+
+		/** Parse a line from an ignore file
+		 * @return the rule or null if the line is blank or a comment
+		 */
+		static Rule parse(String line) {
+			// trailing spaces are ignored unless escaped
+			int end = line.length();
+			while(end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+				end--;
+			}
+			String glob = line.substring(0, end);
+			if(glob.isEmpty() || glob.startsWith("#")) {
+				return null;
+			}
+			boolean negated = false;
+			if(glob.startsWith("!")) {
+				negated = true;
+				glob = glob.substring(1);
+			}
+			else if(glob.startsWith("\\#") || glob.startsWith("\\!")) {
+				glob = glob.substring(1);
+			}
+			boolean folderOnly = false;
+			if(glob.endsWith("/")) {
+				folderOnly = true;
+				glob = glob.substring(0, glob.length() - 1);
+			}
+			boolean anchored = glob.indexOf('/') > -1;
+			if(glob.startsWith("/")) {
+				glob = glob.substring(1);
+			}
+			if(glob.isEmpty()) {
+				return null;
+			}
+
+			if(!anchored && !hasWildcards(glob, 0)) {
+				return new Rule(negated, folderOnly, false, unescape(glob), false, null);
+			}
+			if(!anchored && glob.startsWith("*") && !hasWildcards(glob, 1)) {
+				return new Rule(negated, folderOnly, false, unescape(glob.substring(1)), true, null);
+			}
+			return new Rule(negated, folderOnly, anchored, null, false, Pattern.compile(globToRegex(glob)));
+		}
+
+
+		private static boolean hasWildcards(String glob, int off) {
+			for(int i = off, size = glob.length(); i < size; i++) {
+				char ch = glob.charAt(i);
+				if(ch == '*' || ch == '?' || ch == '[' || ch == '\\') {
+					return true;
+				}
+			}
+			return false;
+		}
+
+
+		private static String unescape(String glob) {
+			return glob.replace("\\", "");
+		}
+
+
+		/** Convert a gitignore glob to a regular expression, '**' matches any number of folders,
+		 * '*' and '?' do not match '/'
+		 */
+		static String globToRegex(String glob) {
+			StringBuilder sb = new StringBuilder();
+			for(int i = 0, size = glob.length(); i < size; i++) {
+				char ch = glob.charAt(i);
+				if(ch == '*' && i + 1 < size && glob.charAt(i + 1) == '*' && (i == 0 || glob.charAt(i - 1) == '/')) {
+					if(i + 2 == size) {
+						// trailing '**' matches everything inside
+						sb.append(".*");
+						i++;
+					}
+					else if(glob.charAt(i + 2) == '/') {
+						// '**/' matches zero or more folders
+						sb.append("(?:.*/)?");
+						i += 2;
+					}
+					else {
+						sb.append("[^/]*");
+						i++;
+					}
+				}
+				else if(ch == '*') {
+					sb.append("[^/]*");
+				}
+				else if(ch == '?') {
+					sb.append("[^/]");
+				}
+				else if(ch == '[') {
+					int close = glob.indexOf(']', i + 2);
+					if(close < 0) {
+						sb.append("\\[");
+						continue;
+					}
+					String set = glob.substring(i + 1, close);
+					if(set.startsWith("!")) {
+						set = "^" + set.substring(1);
+					}
+					sb.append('[').append(set.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+					i = close;
+				}
+				else if(ch == '\\' && i + 1 < size) {
+					sb.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+				}
+				else if("\\.^$|+(){}".indexOf(ch) > -1) {
+					sb.append('\\').append(ch);
+				}
+				else {
+					sb.append(ch);
+				}
+			}
+			return sb.toString();
+		}
+
+	}
+
+}
@@ -0,0 +1,20 @@
+package twg2.fileManipulator;
+
+/** A {@link StringMatcher} that uses {@link String#indexOf(String, int)}, which the JVM
+ * intrinsifies with a vectorized first-character scan, this is the fastest option for short search strings
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public final class IndexOfMatcher extends LiteralMatcher {
+
+	public IndexOfMatcher(String searchStr) {
+		super(searchStr);
+	}
+
+
+	@Override
+	public int indexOf(String str, int fromIndex) {
+		return str.indexOf(searchStr, fromIndex);
+	}
+
+}
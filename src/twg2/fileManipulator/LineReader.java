@@ -0,0 +1,161 @@
+package twg2.fileManipulator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Splits text into lines the same way as {@link java.io.BufferedReader#readLine()} (on '\n', '\r', or "\r\n")
+ * while recording the {@link FileFormat} of the text in the same pass: the counts of each line terminator,
+ * whether the last line ends with a terminator, and whether the text starts with a byte order mark (which is removed from the first line).
+ * The lines of text containing more than one kind of line terminator are returned as {@link MixedNewlineLines} so that each line's terminator is kept
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class LineReader {
+	static final int BUFFER_SIZE = 4096;
+
+	private final List<String> lines = new ArrayList<>();
+	/** the {@link EditableLines#getNewlineType(int) newline type} of each line */
+	private byte[] newlines = new byte[64];
+	private MixedNewlineLines mixedLines;
+	private int lfCount;
+	private int crlfCount;
+	private int crCount;
+	private boolean endsWithNewline;
+	private boolean bom;
+	// the state between calls to append()
+	private final StringBuilder partial = new StringBuilder();
+	private boolean pendingCr;
+	private boolean first = true;
+
+
+	/** Read all of the lines from a reader, the reader is not closed
+	 * @return this instance
+	 */
+	public LineReader read(Reader reader) throws IOException {
+		char[] buf = new char[BUFFER_SIZE];
+		int count;
+		while((count = reader.read(buf)) > -1) {
+			append(buf, 0, count);
+		}
+		return finish();
+	}
+
+
+	/** Read all of the lines from a buffer of decoded text, from its position to its limit
+	 * @return this instance
+	 */
+	public LineReader read(CharBuffer chars) {
+		append(chars);
+		return finish();
+	}
+
+
+	/** Split the next block of text into lines, a line may span multiple blocks.  Call {@link #finish()} after the last block
+	 * @param chars the text from its position to its limit, the buffer's position is not changed
+	 */
+	public void append(CharBuffer chars) {
+		if(chars.hasArray()) {
+			append(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+		}
+		else {
+			char[] buf = new char[chars.remaining()];
+			chars.duplicate().get(buf);
+			append(buf, 0, buf.length);
+		}
+	}
+
+
+	/** Split the next block of text into lines, a line may span multiple blocks.  Call {@link #finish()} after the last block
+	 */
+	public void append(char[] buf, int off, int len) {
+		int start = off;
+		int end = off + len;
+		if(first && len > 0) {
+			first = false;
+			if(buf[off] == '\uFEFF') {
+				bom = true;
+				start = off + 1;
+			}
+		}
+		for(int i = start; i < end; i++) {
+			char ch = buf[i];
+			if(pendingCr) {
+				pendingCr = false;
+				if(ch == '\n') {
+					crlfCount++;
+					newlines[lines.size() - 1] = EditableLines.CRLF;
+					start = i + 1;
+					continue;
+				}
+				crCount++;
+			}
+			if(ch == '\n' || ch == '\r') {
+				if(partial.length() > 0) {
+					partial.append(buf, start, i - start);
+					lines.add(partial.toString());
+					partial.setLength(0);
+				}
+				else {
+					lines.add(new String(buf, start, i - start));
+				}
+				if(lines.size() > newlines.length) {
+					newlines = Arrays.copyOf(newlines, newlines.length * 2);
+				}
+				if(ch == '\r') {
+					pendingCr = true;
+					newlines[lines.size() - 1] = EditableLines.CR;
+				}
+				else {
+					lfCount++;
+					newlines[lines.size() - 1] = EditableLines.LF;
+				}
+				start = i + 1;
+			}
+		}
+		partial.append(buf, start, end - start);
+	}
+
+
+	/** Finish reading after the last block of text has been {@link #append(char[], int, int) appended}
+	 * @return this instance
+	 */
+	public LineReader finish() {
+		if(pendingCr) {
+			pendingCr = false;
+			crCount++;
+		}
+		if(partial.length() > 0) {
+			lines.add(partial.toString());
+			partial.setLength(0);
+			endsWithNewline = false;
+		}
+		else {
+			endsWithNewline = lines.size() > 0;
+		}
+		return this;
+	}
+
+
+	/**
+	 * @return the lines read, a {@link MixedNewlineLines} list if the text contains more than one kind of line terminator
+	 */
+	public List<String> getLines() {
+		if((lfCount > 0 ? 1 : 0) + (crlfCount > 0 ? 1 : 0) + (crCount > 0 ? 1 : 0) < 2) {
+			return lines;
+		}
+		if(mixedLines == null) {
+			mixedLines = new MixedNewlineLines(lines.toArray(new String[lines.size()]), Arrays.copyOf(newlines, lines.size()), lines.size());
+		}
+		return mixedLines;
+	}
+
+
+	public FileFormat getFormat() {
+		return FileFormat.fromCounts(lfCount, crlfCount, crCount, endsWithNewline, bom);
+	}
+
+}
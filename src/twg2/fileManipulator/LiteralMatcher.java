@@ -0,0 +1,35 @@
+package twg2.fileManipulator;
+
+import twg2.text.stringUtils.StringReplace;
+
+/** Base class for {@link StringMatcher matchers} that search for a literal string
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public abstract class LiteralMatcher implements StringMatcher {
+	protected final String searchStr;
+
+
+	public LiteralMatcher(String searchStr) {
+		this.searchStr = searchStr;
+	}
+
+
+	@Override
+	public String replaceAll(String str, String replacement) {
+		return StringReplace.replace(str, searchStr, replacement);
+	}
+
+
+	@Override
+	public String getLiteral() {
+		return searchStr;
+	}
+
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "(\"" + searchStr + "\")";
+	}
+
+}
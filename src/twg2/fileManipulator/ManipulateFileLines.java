@@ -3,7 +3,7 @@ package twg2.fileManipulator;
 import java.io.File;
 import java.util.Map;
 import java.util.function.BiFunction;
-import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * @author TeamworkGuy2
@@ -11,7 +11,7 @@ import java.util.function.Function;
  */
 public final class ManipulateFileLines extends ManipulateLines<File, FileInfo, String> {
 
-	public ManipulateFileLines(Function<String, Boolean> searchCondition, BiFunction<String, String, String> add,
+	public ManipulateFileLines(Predicate<String> searchCondition, BiFunction<String, String, String> add,
 			BiFunction<String, String, String> replace, Map<File, FileLineSearch> matches) {
 		super(searchCondition, add, replace, matches);
 	}
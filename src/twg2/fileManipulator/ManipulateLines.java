@@ -1,11 +1,14 @@
 package twg2.fileManipulator;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.function.Predicate;
 
 import twg2.collections.primitiveCollections.IntArrayList;
 import twg2.functions.TriConsumer;
@@ -74,12 +77,12 @@ public abstract class ManipulateLines<K, V, T> {
 
 
 	private final Map<K, ? extends LineSearch<? extends V, T>> matches;
-	private final Function<T, Boolean> searchCondition;
+	private final Predicate<T> searchCondition;
 	private final BiFunction<T, T, T> replaceFunc;
 	private final BiFunction<T, T, T> add;
 
 
-	public ManipulateLines(Function<T, Boolean> searchCondition, BiFunction<T, T, T> add,
+	public ManipulateLines(Predicate<T> searchCondition, BiFunction<T, T, T> add,
 			BiFunction<T, T, T> replaceFunc, Map<K, ? extends LineSearch<? extends V, T>> matches) {
 		this.matches = matches;
 		this.searchCondition = searchCondition;
@@ -97,39 +100,12 @@ public abstract class ManipulateLines<K, V, T> {
 
 	public ManipulateLines<K, V, T> manipulateLines(FileLineOp op, T line) {
 		// indicates whether the line being manipulated matches this search condition
-		boolean insertMatches = searchCondition.apply(line);
+		boolean insertMatches = searchCondition.test(line);
 		switch(op) {
 		case ADD_LINE_AFTER:
-			int insertOffset = 1;
 			//$FALL-THROUGH$
 		case ADD_LINE_BEFORE:
-			if(op == FileLineOp.ADD_LINE_BEFORE) {
-				insertOffset = 0;
-			}
-			else {
-				insertOffset = 1;
-			}
-			final int insertOff = insertOffset;
-			matches.forEach((f, lineSearch) -> {
-				IntArrayList lineNums = lineSearch.getMatchingLineNums();
-				List<T> matchingLines = lineSearch.getMatchingLines();
-				List<T> lines = lineSearch.getSourceLines();
-				lineSearch.setModified();
-				// for each matching line in each file, insert a line before or
-				// after the current line and increment line indices occurring after the inserted index
-				for(int i = 0; i < lineNums.size(); i++) {
-					lines.add(lineNums.get(i) + insertOff, line);
-					if(insertMatches) {
-						lineNums.add(i + insertOff, lineNums.get(i) + insertOff);
-						matchingLines.add(i + insertOff, line);
-						i++;
-					}
-
-					for(int ii = (insertMatches ? i + insertOff : i + insertOff), size = lineNums.size(); ii < size; ii++) {
-						lineNums.set(ii, lineNums.get(ii) + 1);
-					}
-				}
-			});
+			addToMatchingLines(null, op == FileLineOp.ADD_LINE_AFTER, op == FileLineOp.ADD_LINE_AFTER ? 1 : 0, Collections.singletonList(line), new boolean[] { insertMatches });
 			break;
 		case APPEND_TO_LINE:
 			boolean append = true;
@@ -163,18 +139,7 @@ public abstract class ManipulateLines<K, V, T> {
 			});
 			break;
 		case REMOVE_LINE:
-			matches.forEach((f, lineSearch) -> {
-				IntArrayList lineNums = lineSearch.getMatchingLineNums();
-				List<T> lines = lineSearch.getSourceLines();
-				lineSearch.setModified();
-				// for each matching line in each file, insert a line before or
-				// after the current line and increment line indices occurring after the inserted index
-				for(int i = lineNums.size() - 1; i > -1; i--) {
-					lines.remove(lineNums.get(i));
-				}
-				lineNums.clear();
-				lineSearch.getMatchingLines().clear();
-			});
+			removeMatchingLines();
 			break;
 		case REPLACE_LINE:
 			matches.forEach((f, lineSearch) -> {
@@ -217,7 +182,7 @@ public abstract class ManipulateLines<K, V, T> {
 		int lineCount = lines.size();
 		boolean[] insertMatches = new boolean[lineCount];
 		for(int i = 0; i < lineCount; i++) {
-			insertMatches[i] = searchCondition.apply(lines.get(i));
+			insertMatches[i] = searchCondition.test(lines.get(i));
 		}
 
 		switch(op) {
@@ -248,81 +213,188 @@ public abstract class ManipulateLines<K, V, T> {
 	}
 
 
+	/** Insert lines before and/or after each matching line and optionally modify each matching line.
+	 * Each source's lines are rebuilt in a single pass over the original lines and the (sorted) matching line numbers.
+	 * Inserted lines which match this manipulator's search condition (flagged by {@code insertMatches}) are added to the matching lines
+	 * @param op the modification to apply to each matching line using one of the {@code insertLines}, or null to only insert lines
+	 * @param modifyFirst if {@code op} is not null, true to modify each matching line with the first insert line and insert the rest
+	 * after the matching line, false to modify each matching line with the last insert line and insert the rest before the matching line
+	 * @param stepOffset if {@code op} is null, 1 to insert lines after each matching line, 0 to insert lines before each matching line
+	 * @param insertLines the lines to insert or modify matching lines with
+	 * @param insertMatches flags indicating whether each of the {@code insertLines} match this manipulator's search condition
+	 */
 	// package-private
 	void addToMatchingLines(ReplacementLinesOp op, boolean modifyFirst, int stepOffset, List<T> insertLines, boolean[] insertMatches) {
+		int count = insertLines.size();
+		// the index of the insert line used to modify each matching line, lines before it are inserted before
+		// each matching line and lines after it are inserted after each matching line
+		int modifyIdx = (op != null ? (modifyFirst ? 0 : count - 1) : (stepOffset > 0 ? -1 : count));
+
 		matches.forEach((f, lineSearch) -> {
+			lineSearch.setModified();
+			if(count == 0) {
+				return;
+			}
+
 			IntArrayList matchLineNums = lineSearch.getMatchingLineNums();
 			List<T> matchLines = lineSearch.getMatchingLines();
 			List<T> lines = lineSearch.getSourceLines();
-			lineSearch.setModified();
-			// for each matching line in each file, insert the insertLines list before or after it and
-			// increment line indices occurring after the inserted index
-			for(int i = 0; i < matchLineNums.size(); i++) {
-				int insertOff = stepOffset;
-				// insert the list of new items
-				for(int k = 0, count = insertLines.size(); k < count; k++) {
-					// modify existing item
-					if(op != null && ((modifyFirst && k == 0) || (!modifyFirst && k == count - 1))) {
-						int lineNum = matchLineNums.get(i);
-						T line = lines.get(lineNum);
-						T insertLine = insertLines.get(k);
-
-						if((op == ReplacementLinesOp.APPEND || op == ReplacementLinesOp.PREPEND)) {
-							T first = op == ReplacementLinesOp.PREPEND ? insertLine : line;
-							T second = op == ReplacementLinesOp.PREPEND ? line : insertLine;
-							T res = add.apply(first, second);
-							lines.set(lineNum, res);
-							matchLines.set(i, res);
-						}
-						else if(op == ReplacementLinesOp.REPLACE_ALL) {
-							// for each matching line of each file, replace the matching line with the new line
-							lines.set(lineNum, insertLine);
-							matchLines.set(i, insertLine);
-						}
-						else if(op == ReplacementLinesOp.REPLACE_PORTION) {
-							T lineReplaced = replaceFunc.apply(lines.get(lineNum), insertLine);
-							// for each matching line of each file, replace the matching line with a new line with the matching portion replaced
-							lines.set(lineNum, lineReplaced);
-							matchLines.set(i, lineReplaced);
-						}
-					}
-					// insert new item
-					else {
-						lines.add(matchLineNums.get(i) + insertOff, insertLines.get(k));
-
-						if(insertMatches[k]) {
-							matchLineNums.add(i + insertOff, matchLineNums.get(i) + insertOff);
-							matchLines.add(i + insertOff, insertLines.get(k));
-							i++;
-						}
-						for(int ii = (insertMatches[k] ? i + insertOff : i + insertOff), size = matchLineNums.size(); ii < size; ii++) {
-							matchLineNums.set(ii, matchLineNums.get(ii) + 1);
-						}
-						insertOff += stepOffset;
+			int matchCount = matchLineNums.size();
+			int insertPerMatch = (modifyIdx > -1 && modifyIdx < count ? count - 1 : count);
+
+			int resSize = lines.size() + matchCount * insertPerMatch;
+			List<T> resLines = new ArrayList<>(resSize);
+			IntArrayList resMatchLineNums = new IntArrayList();
+			List<T> resMatchLines = new ArrayList<>(matchCount);
+			// editable lists are rebuilt from the index of the line each result line was copied from, so unmodified compact lines
+			// are not decoded and each line keeps its original terminator
+			EditableLines editableLines = lines instanceof EditableLines ? (EditableLines)lines : null;
+			int[] resSourceLines = null;
+			if(editableLines != null) {
+				resSourceLines = new int[resSize];
+				Arrays.fill(resSourceLines, -1);
+			}
+			int prevLineNum = 0;
+
+			for(int i = 0; i < matchCount; i++) {
+				int lineNum = matchLineNums.get(i);
+				// copy the unmatched lines between the previous matching line and this one
+				copyLines(lines, prevLineNum, lineNum, resLines, resSourceLines);
+
+				for(int k = 0, end = Math.min(modifyIdx, count); k < end; k++) {
+					addLine(insertLines.get(k), insertMatches[k], resLines, resMatchLineNums, resMatchLines);
+				}
+
+				T line = lines.get(lineNum);
+				if(modifyIdx > -1 && modifyIdx < count) {
+					line = modifyLine(op, line, insertLines.get(modifyIdx));
+					if(resSourceLines != null) {
+						resSourceLines[resLines.size()] = EditableLines.changedLine(lineNum);
 					}
 				}
+				else if(resSourceLines != null) {
+					resSourceLines[resLines.size()] = lineNum;
+				}
+				addLine(line, true, resLines, resMatchLineNums, resMatchLines);
+
+				for(int k = modifyIdx + 1; k < count; k++) {
+					addLine(insertLines.get(k), insertMatches[k], resLines, resMatchLineNums, resMatchLines);
+				}
+				prevLineNum = lineNum + 1;
+			}
+			copyLines(lines, prevLineNum, lines.size(), resLines, resSourceLines);
+
+			if(editableLines != null) {
+				@SuppressWarnings("unchecked")
+				List<String> resStrs = (List<String>)resLines;
+				editableLines.replaceLines(resSourceLines, resStrs, resSize);
+			}
+			else {
+				lines.clear();
+				lines.addAll(resLines);
 			}
+			matchLineNums.clear();
+			for(int i = 0, size = resMatchLineNums.size(); i < size; i++) {
+				matchLineNums.add(resMatchLineNums.get(i));
+			}
+			matchLines.clear();
+			matchLines.addAll(resMatchLines);
 		});
 	}
 
 
+	private T modifyLine(ReplacementLinesOp op, T line, T insertLine) {
+		switch(op) {
+		case APPEND:
+			return add.apply(line, insertLine);
+		case PREPEND:
+			return add.apply(insertLine, line);
+		case REPLACE_ALL:
+			return insertLine;
+		case REPLACE_PORTION:
+			return replaceFunc.apply(line, insertLine);
+		default:
+			throw new IllegalStateException("unsupported enum value: " + op);
+		}
+	}
+
+
+	/** Copy a range of lines to the result lines, or if {@code resSourceLines} is not null, record the index of each line
+	 * and add null placeholders to the result lines
+	 */
+	private static <T> void copyLines(List<T> lines, int fromIndex, int toIndex, List<T> resLines, int[] resSourceLines) {
+		if(resSourceLines == null) {
+			resLines.addAll(lines.subList(fromIndex, toIndex));
+			return;
+		}
+		for(int i = fromIndex; i < toIndex; i++) {
+			resSourceLines[resLines.size()] = i;
+			resLines.add(null);
+		}
+	}
+
+
+	private static <T> void addLine(T line, boolean isMatch, List<T> resLines, IntArrayList resMatchLineNums, List<T> resMatchLines) {
+		if(isMatch) {
+			resMatchLineNums.add(resLines.size());
+			resMatchLines.add(line);
+		}
+		resLines.add(line);
+	}
+
+
+	/** Remove each matching line.  Each source's lines are compacted in a single pass, skipping the (sorted) matching line numbers
+	 */
 	// package-private
 	void removeMatchingLines() {
 		matches.forEach((f, lineSearch) -> {
 			IntArrayList lineNums = lineSearch.getMatchingLineNums();
 			List<T> lines = lineSearch.getSourceLines();
 			lineSearch.setModified();
-			// for each matching line in each file, insert a line before or
-			// after the current line and increment line indices occurring after the inserted index
-			for(int i = lineNums.size() - 1; i > -1; i--) {
-				lines.remove(lineNums.get(i));
-			}
+			removeLines(lines, lineNums);
 			lineNums.clear();
 			lineSearch.getMatchingLines().clear();
 		});
 	}
 
 
+	/** Remove lines from a list by shifting each remaining line down over the removed lines and then truncating the list
+	 * @param lines the list of lines to remove lines from
+	 * @param sortedLineNums the ascending, unique indices of the lines to remove
+	 */
+	static <T> void removeLines(List<T> lines, IntArrayList sortedLineNums) {
+		int removeCount = sortedLineNums.size();
+		if(removeCount == 0) {
+			return;
+		}
+		int size = lines.size();
+		if(lines instanceof EditableLines) {
+			// reference the remaining lines rather than copying them, so compact lines are not decoded and each line keeps its terminator
+			int[] sourceLines = new int[size - removeCount];
+			for(int src = 0, dst = 0, r = 0; src < size; src++) {
+				if(r < removeCount && sortedLineNums.get(r) == src) {
+					r++;
+				}
+				else {
+					sourceLines[dst++] = src;
+				}
+			}
+			((EditableLines)lines).replaceLines(sourceLines, null, sourceLines.length);
+			return;
+		}
+		int dst = sortedLineNums.get(0);
+		for(int src = dst + 1, r = 1; src < size; src++) {
+			if(r < removeCount && sortedLineNums.get(r) == src) {
+				r++;
+			}
+			else {
+				lines.set(dst++, lines.get(src));
+			}
+		}
+		lines.subList(dst, size).clear();
+	}
+
+
 	/** Pass all of the matching lines to a callback function
 	 * @param op the {@link DebugOp} operation to use to determine which lines to pass to the consumer function
 	 * @param matchingFile if {@link DebugOp} is {@link DebugOp#PRINT_MATCH_FILES}, each of the
@@ -337,37 +409,40 @@ public abstract class ManipulateLines<K, V, T> {
 	 */
 	public ManipulateLines<K, V, T> lineOperation(DebugOp op, Consumer<K> matchingFile, Consumer<T> matchingLine,
 			BiConsumer<Integer, K> matchingLineCountPerFile, BiConsumer<T, K> matchingLineFromFile) {
+		matches.forEach((k, lineSearch) -> {
+			lineOperation(op, k, lineSearch, matchingFile, matchingLine, matchingLineCountPerFile, matchingLineFromFile);
+		});
+		return this;
+	}
+
+
+	/** Pass the matching lines from a single {@link LineSearch} to a callback function.
+	 * See {@link #lineOperation(DebugOp, Consumer, Consumer, BiConsumer, BiConsumer)}
+	 */
+	static <K, T> void lineOperation(DebugOp op, K k, LineSearch<?, T> lineSearch, Consumer<K> matchingFile, Consumer<T> matchingLine,
+			BiConsumer<Integer, K> matchingLineCountPerFile, BiConsumer<T, K> matchingLineFromFile) {
 		switch(op) {
 		case PRINT_MATCH_FILES:
-			matches.forEach((k, lineSearch) -> {
-				matchingFile.accept(k);
-			});
+			matchingFile.accept(k);
 			break;
 		case PRINT_MATCH_LINES:
-			matches.forEach((k, lineSearch) -> {
-				List<T> lineSet = lineSearch.getMatchingLines();
-				for(int i = 0, size = lineSet.size(); i < size; i++) {
-					matchingLine.accept(lineSet.get(i));
-				}
-			});
+			List<T> lineSet = lineSearch.getMatchingLines();
+			for(int i = 0, size = lineSet.size(); i < size; i++) {
+				matchingLine.accept(lineSet.get(i));
+			}
 			break;
 		case PRINT_MATCHING_LINE_COUNT_PER_FILE:
-			matches.forEach((k, lineSearch) -> {
-				matchingLineCountPerFile.accept(lineSearch.getMatchingLines().size(), k);
-			});
+			matchingLineCountPerFile.accept(lineSearch.getMatchingLines().size(), k);
 			break;
 		case PRINT_MATCHING_LINES_PER_FILE:
-			matches.forEach((k, lineSearch) -> {
-				List<T> lineSet = lineSearch.getMatchingLines();
-				for(int i = 0, size = lineSet.size(); i < size; i++) {
-					matchingLineFromFile.accept(lineSet.get(i), k);
-				}
-			});
+			List<T> fileLines = lineSearch.getMatchingLines();
+			for(int i = 0, size = fileLines.size(); i < size; i++) {
+				matchingLineFromFile.accept(fileLines.get(i), k);
+			}
 			break;
 		default:
 			throw new IllegalStateException("unsupported enum value: " + op);
 		}
-		return this;
 	}
 
 
@@ -0,0 +1,152 @@
+package twg2.fileManipulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import twg2.collections.primitiveCollections.IntArrayList;
+
+/** Searches the raw bytes of a file for an encoded search string without decoding the file.
+ * Only the lines containing a match are decoded into strings.
+ * Files larger than {@link #MAP_THRESHOLD} are memory-mapped, smaller files are read into a reusable per-thread buffer.
+ * Only charsets which encode '\r' and '\n' as single bytes that never appear inside other characters'
+ * encodings are supported, see {@link #isSupported(Charset)}
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class MappedFileSearch {
+	/** files this size or larger (in bytes) are memory-mapped instead of being read into a buffer */
+	static final int MAP_THRESHOLD = 256 * 1024;
+
+	private static final ThreadLocal<ByteBuffer> readBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAP_THRESHOLD));
+
+
+	private MappedFileSearch() { throw new AssertionError("cannot instantiate static class MappedFileSearch"); }
+
+
+	/**
+	 * @return true if files in the {@code cs} charset can be searched byte-by-byte
+	 */
+	public static boolean isSupported(Charset cs) {
+		return StandardCharsets.UTF_8.equals(cs) || StandardCharsets.US_ASCII.equals(cs) || StandardCharsets.ISO_8859_1.equals(cs);
+	}
+
+
+	/**
+	 * @return true if {@code searchStr} can be searched for byte-by-byte in files with the {@code cs} charset.
+	 * Search strings containing the replacement character '\uFFFD' are not supported since they match malformed input once it is decoded
+	 */
+	public static boolean isSupported(String searchStr, Charset cs) {
+		return isSupported(cs) && searchStr.length() > 0 && searchStr.indexOf('\n') < 0 && searchStr.indexOf('\r') < 0 &&
+				searchStr.indexOf('\uFFFD') < 0 && cs.newEncoder().canEncode(searchStr);
+	}
+
+
+	/** Search a file for an encoded string
+	 * @param file the file to search
+	 * @param cs the charset of the file, used to decode matching lines
+	 * @param searchBytes the search string encoded using {@code cs}
+	 * @param matchingLineNums the 0-based line numbers of lines containing {@code searchBytes} are added to this list
+	 * @param matchingLines the decoded lines containing {@code searchBytes} are added to this list
+	 * @return true if at least one matching line was found
+	 * @throws IOException if there is an error reading the file
+	 */
+	public static boolean searchFile(File file, Charset cs, byte[] searchBytes, IntArrayList matchingLineNums, List<String> matchingLines) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("file too large to search (" + size + " bytes): " + file);
+			}
+
+			ByteBuffer buf;
+			if(size >= MAP_THRESHOLD) {
+				buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			else {
+				buf = readBuffer.get();
+				buf.clear();
+				while(buf.hasRemaining() && channel.read(buf) > -1) { }
+				buf.flip();
+			}
+
+			return searchLines(buf, cs, searchBytes, matchingLineNums, matchingLines);
+		}
+	}
+
+
+	/** Search the bytes from position 0 to the limit of a buffer for an encoded string
+	 * @see #searchFile(File, Charset, byte[], IntArrayList, List)
+	 */
+	static boolean searchLines(ByteBuffer buf, Charset cs, byte[] searchBytes, IntArrayList matchingLineNums, List<String> matchingLines) {
+		int size = buf.limit();
+		int searchLen = searchBytes.length;
+		byte first = searchBytes[0];
+		boolean found = false;
+		// the line number and start offset of the line containing 'pos', 'pos' trails the search index
+		int lineNum = 0;
+		int lineStart = 0;
+		int pos = 0;
+		// skip a UTF-8 byte order mark, the same as FileManipulator.readLines()
+		if(size >= 3 && StandardCharsets.UTF_8.equals(cs) && buf.get(0) == (byte)0xEF && buf.get(1) == (byte)0xBB && buf.get(2) == (byte)0xBF) {
+			lineStart = 3;
+			pos = 3;
+		}
+
+		for(int i = pos, end = size - searchLen; i <= end; i++) {
+			if(buf.get(i) != first || !regionMatches(buf, i + 1, searchBytes, 1)) {
+				continue;
+			}
+
+			// count the lines between the last match and this one, the search string contains no
+			// line terminators, so a '\r\n' pair never straddles the match position
+			for(; pos < i; pos++) {
+				byte b = buf.get(pos);
+				if(b == '\n' || b == '\r') {
+					if(b == '\r' && pos + 1 < size && buf.get(pos + 1) == '\n') {
+						pos++;
+					}
+					lineNum++;
+					lineStart = pos + 1;
+				}
+			}
+
+			int lineEnd = i + searchLen;
+			for(byte b; lineEnd < size && (b = buf.get(lineEnd)) != '\n' && b != '\r'; lineEnd++) { }
+
+			matchingLineNums.add(lineNum);
+			matchingLines.add(decode(buf, lineStart, lineEnd, cs));
+			found = true;
+
+			// skip the rest of this line
+			pos = lineEnd;
+			i = lineEnd;
+		}
+		return found;
+	}
+
+
+	private static boolean regionMatches(ByteBuffer buf, int off, byte[] searchBytes, int searchOff) {
+		for(int i = searchOff, size = searchBytes.length; i < size; i++, off++) {
+			if(buf.get(off) != searchBytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	private static String decode(ByteBuffer buf, int off, int end, Charset cs) {
+		byte[] bytes = new byte[end - off];
+		for(int i = 0; i < bytes.length; i++) {
+			bytes[i] = buf.get(off + i);
+		}
+		// the String constructor replaces malformed input, the same as FileManipulator.readLines()
+		return new String(bytes, cs);
+	}
+
+}
@@ -0,0 +1,138 @@
+package twg2.fileManipulator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** The lines of a file which contains more than one kind of line terminator, stored as strings alongside the
+ * {@link EditableLines type of terminator} each line was read with.
+ * Files with a single kind of line terminator are stored in a plain list since their {@link FileFormat} describes every line
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class MixedNewlineLines extends EditableLines {
+	private String[] lines;
+	private byte[] newlines;
+	private int size;
+
+
+	/**
+	 * @param lines the lines, not copied
+	 * @param newlines the newline type of each line, not copied
+	 * @param size the number of lines
+	 */
+	MixedNewlineLines(String[] lines, byte[] newlines, int size) {
+		this.lines = lines;
+		this.newlines = newlines;
+		this.size = size;
+	}
+
+
+	@Override
+	public String get(int index) {
+		checkIndex(index, size);
+		return lines[index];
+	}
+
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+
+	/** Replace the text of a line, the line keeps its terminator
+	 */
+	@Override
+	public String set(int index, String line) {
+		checkIndex(index, size);
+		String prev = lines[index];
+		lines[index] = line;
+		return prev;
+	}
+
+
+	@Override
+	public void add(int index, String line) {
+		checkIndex(index, size + 1);
+		ensureCapacity(size + 1);
+		System.arraycopy(lines, index, lines, index + 1, size - index);
+		System.arraycopy(newlines, index, newlines, index + 1, size - index);
+		lines[index] = line;
+		newlines[index] = NO_NEWLINE;
+		size++;
+		modCount++;
+	}
+
+
+	@Override
+	public String remove(int index) {
+		String prev = get(index);
+		removeRange(index, index + 1);
+		return prev;
+	}
+
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		System.arraycopy(lines, toIndex, lines, fromIndex, size - toIndex);
+		System.arraycopy(newlines, toIndex, newlines, fromIndex, size - toIndex);
+		int newSize = size - (toIndex - fromIndex);
+		Arrays.fill(lines, newSize, size, null);
+		size = newSize;
+		modCount++;
+	}
+
+
+	@Override
+	public void clear() {
+		Arrays.fill(lines, 0, size, null);
+		size = 0;
+		modCount++;
+	}
+
+
+	@Override
+	void replaceLines(int[] sourceLines, List<String> lines, int size) {
+		String[] newLines = new String[Math.max(size, 16)];
+		byte[] newNewlines = new byte[newLines.length];
+		for(int i = 0; i < size; i++) {
+			int src = sourceLines[i];
+			if(src > -1) {
+				newLines[i] = this.lines[src];
+				newNewlines[i] = this.newlines[src];
+			}
+			else {
+				newLines[i] = lines.get(i);
+				newNewlines[i] = (src < -1 ? this.newlines[changedLineSource(src)] : NO_NEWLINE);
+			}
+		}
+		this.lines = newLines;
+		this.newlines = newNewlines;
+		this.size = size;
+		modCount++;
+	}
+
+
+	@Override
+	byte getNewlineType(int index) {
+		checkIndex(index, size);
+		return newlines[index];
+	}
+
+
+	private void ensureCapacity(int capacity) {
+		if(capacity > lines.length) {
+			int newCapacity = Math.max(capacity, lines.length + (lines.length >> 1));
+			lines = Arrays.copyOf(lines, newCapacity);
+			newlines = Arrays.copyOf(newlines, newCapacity);
+		}
+	}
+
+
+	private static void checkIndex(int index, int size) {
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+	}
+
+}
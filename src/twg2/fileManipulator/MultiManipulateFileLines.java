@@ -0,0 +1,66 @@
+package twg2.fileManipulator;
+
+import java.util.Map;
+
+import twg2.fileManipulator.ManipulateLines.FileLineOp;
+
+/** The results of searching for multiple patterns at once using {@link FileManipulator#searchAll(Map)}.
+ * Contains the results for each individual pattern and a combined result containing every line
+ * matching any of the patterns.<br>
+ * All of the results share the same underlying file lines, so after manipulating one of the results
+ * the line numbers in the other results may be out of date
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public class MultiManipulateFileLines {
+	private final AhoCorasickMatcher matcher;
+	private final Map<String, ManipulateFileLines> patternResults;
+	private final ManipulateFileLines combinedResults;
+
+
+	public MultiManipulateFileLines(AhoCorasickMatcher matcher, Map<String, ManipulateFileLines> patternResults, ManipulateFileLines combinedResults) {
+		this.matcher = matcher;
+		this.patternResults = patternResults;
+		this.combinedResults = combinedResults;
+	}
+
+
+	public AhoCorasickMatcher getMatcher() {
+		return matcher;
+	}
+
+
+	/**
+	 * @return the search results for each pattern, in the order the patterns were provided
+	 */
+	public Map<String, ManipulateFileLines> getPatternResults() {
+		return patternResults;
+	}
+
+
+	/**
+	 * @return the search results for a single pattern, or null if {@code pattern} was not one of the search patterns
+	 */
+	public ManipulateFileLines getPatternResults(String pattern) {
+		return patternResults.get(pattern);
+	}
+
+
+	/**
+	 * @return the search results containing every line that matched at least one pattern. A {@link FileLineOp#REPLACE_MATCHING_PORTION}
+	 * operation on these results replaces each pattern with its own replacement, ignoring the operation's replacement text
+	 */
+	public ManipulateFileLines getCombinedResults() {
+		return combinedResults;
+	}
+
+
+	/** Replace every occurrence of every pattern with its replacement, in a single pass over each matching line
+	 * @return this instance
+	 */
+	public MultiManipulateFileLines replaceAll() {
+		combinedResults.manipulateLines(FileLineOp.REPLACE_MATCHING_PORTION, "");
+		return this;
+	}
+
+}
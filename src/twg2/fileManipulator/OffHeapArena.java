@@ -0,0 +1,77 @@
+package twg2.fileManipulator;
+
+import java.nio.ByteBuffer;
+
+/** Allocates buffers outside of the Java heap so that file contents do not add to the heap size or garbage collection time.
+ * Buffers larger than {@link #getMaxSliceSize()} get their own direct buffer, which is released as soon as the buffer is garbage collected.
+ * Smaller buffers are sliced from shared direct buffers (slabs) to avoid the per-allocation cost of many small direct buffers.<br>
+ * Allocated buffers are never reused, a slab's memory is only released once every buffer sliced from it has been garbage collected,
+ * so a single small buffer which is still referenced keeps its entire slab allocated.  Slabs are kept small so that the memory
+ * kept allocated this way is bounded by {@link #DEFAULT_SLAB_SIZE} per live small buffer rather than growing with the number of
+ * buffers allocated and released over time.<br>
+ * Direct buffers count against the JVM's '-XX:MaxDirectMemorySize' limit (by default the same as the maximum heap size '-Xmx'),
+ * allocations beyond the limit trigger a full garbage collection and then fail with an {@link OutOfMemoryError}.
+ * Thread safe
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class OffHeapArena {
+	/** the default slab size, 1 MB */
+	static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+	private final int slabSize;
+	private final int maxSliceSize;
+	// guarded by 'this'
+	private ByteBuffer slab;
+
+
+	public OffHeapArena() {
+		this(DEFAULT_SLAB_SIZE);
+	}
+
+
+	/**
+	 * @param slabSize the size of each direct buffer which small allocations, up to 1/64th of the slab size, are sliced from
+	 */
+	public OffHeapArena(int slabSize) {
+		if(slabSize < 1) {
+			throw new IllegalArgumentException("slab size must be greater than 0: " + slabSize);
+		}
+		this.slabSize = slabSize;
+		this.maxSliceSize = slabSize / 64;
+	}
+
+
+	/**
+	 * @return the largest allocation which is sliced from a shared slab, larger allocations get their own direct buffer
+	 */
+	public int getMaxSliceSize() {
+		return maxSliceSize;
+	}
+
+
+	/** Allocate a direct buffer
+	 * @param size the size of the buffer
+	 * @return a direct buffer with position 0 and a capacity and limit of {@code size}
+	 * @throws OutOfMemoryError if the JVM's direct memory limit is reached
+	 */
+	public ByteBuffer allocate(int size) {
+		if(size < 0) {
+			throw new IllegalArgumentException("size must not be negative: " + size);
+		}
+		if(size > maxSliceSize) {
+			return ByteBuffer.allocateDirect(size);
+		}
+		synchronized(this) {
+			if(slab == null || slab.remaining() < size) {
+				slab = ByteBuffer.allocateDirect(slabSize);
+			}
+			int end = slab.position() + size;
+			ByteBuffer buf = slab.duplicate();
+			buf.limit(end);
+			slab.position(end);
+			return buf.slice();
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+package twg2.fileManipulator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/** Runs a task for each element of a list using a fork-join pool of a fixed size.
+ * One pool is shared by all callers which use the same parallelism, so that the same worker threads and their per-thread
+ * buffers and encoders (see {@link FileSaver} and {@link FileManipulator#readFile(java.io.File, java.nio.charset.Charset)})
+ * are reused across searches, loads, and saves.  The pools' worker threads are daemon threads which exit after they have been idle for a while
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class ParallelTasks {
+
+	/** the shared pools, by parallelism */
+	private static final Map<Integer, ForkJoinPool> pools = new ConcurrentHashMap<>();
+
+
+	private ParallelTasks() { throw new AssertionError("cannot instantiate static class ParallelTasks"); }
+
+
+	/** Get the shared fork-join pool for a parallelism, the pool must not be shut down
+	 * @param parallelism the pool's parallelism, must be greater than 0
+	 * @return the pool, created the first time it is requested
+	 */
+	public static ForkJoinPool getPool(int parallelism) {
+		return pools.computeIfAbsent(parallelism, (p) -> new ForkJoinPool(p));
+	}
+
+
+	/** Call a task with each element of a list
+	 * @param items the list of elements, must support fast random access and must not be modified while this method runs
+	 * @param parallelism the maximum number of threads to use, values less than 2 call the task
+	 * with each element in order on the calling thread
+	 * @param batchSize the maximum number of elements processed by a single fork-join task
+	 * @param task the task to call with each element, must be thread-safe if {@code parallelism} is greater than 1.
+	 * The first exception thrown by the task is rethrown by this method
+	 */
+	public static <T> void forEach(List<T> items, int parallelism, int batchSize, Consumer<? super T> task) {
+		if(parallelism < 2 || items.size() <= batchSize) {
+			for(int i = 0, size = items.size(); i < size; i++) {
+				task.accept(items.get(i));
+			}
+			return;
+		}
+
+		getPool(parallelism).invoke(new BatchTask<T>(items, 0, items.size(), Math.max(batchSize, 1), task));
+	}
+
+
+
+
+	/**
+	 * @author TeamworkGuy2
+	 * @since 2026-10-18
+	 */
+	static final class BatchTask<T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<T> items;
+		private final int off;
+		private final int end;
+		private final int batchSize;
+		private final Consumer<? super T> task;
+
+
+		public BatchTask(List<T> items, int off, int end, int batchSize, Consumer<? super T> task) {
+			this.items = items;
+			this.off = off;
+			this.end = end;
+			this.batchSize = batchSize;
+			this.task = task;
+		}
+
+
+		@Override
+		protected void compute() {
+			if(end - off > batchSize) {
+				int mid = (off + end) >>> 1;
+				invokeAll(new BatchTask<T>(items, off, mid, batchSize, task), new BatchTask<T>(items, mid, end, batchSize, task));
+				return;
+			}
+
+			for(int i = off; i < end; i++) {
+				task.accept(items.get(i));
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,200 @@
+package twg2.fileManipulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/** A file path filter compiled once from lists of include and exclude patterns so that testing a path costs time proportional
+ * to the length of the path rather than the number of patterns.
+ * 'contains' patterns are matched by an {@link AhoCorasickMatcher}, 'starts with' patterns by a {@link Trie} and
+ * 'ends with' patterns by a trie of the reversed patterns.  The optional wildcard file name pattern is compiled once.<br>
+ * Thread safe
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class PathFilter implements Predicate<String> {
+	private final boolean hasIncludes;
+	private final AhoCorasickMatcher includeContains;
+	private final Trie includeStartsWith;
+	private final Trie includeEndsWith;
+	private final boolean hasExcludes;
+	private final AhoCorasickMatcher excludeContains;
+	private final Trie excludeStartsWith;
+	private final Trie excludeEndsWith;
+	private final Pattern fileNamePattern;
+
+
+	/**
+	 * @param hasIncludes true if paths must match at least one of the include patterns, if true and there are no include patterns, no paths match
+	 * @param includeContains patterns which match a path if they appear anywhere in it. Null allowed
+	 * @param includeStartsWith patterns which match a path if it starts with them. Null allowed
+	 * @param includeEndsWith patterns which match a path if it ends with them. Null allowed
+	 * @param hasExcludes true if paths which match any of the exclude patterns are rejected
+	 * @param excludeContains see {@code includeContains}
+	 * @param excludeStartsWith see {@code includeStartsWith}
+	 * @param excludeEndsWith see {@code includeEndsWith}
+	 * @param fileNamePattern a regular expression which the entire path must match. Null allowed
+	 */
+	public PathFilter(boolean hasIncludes, List<String> includeContains, List<String> includeStartsWith, List<String> includeEndsWith,
+			boolean hasExcludes, List<String> excludeContains, List<String> excludeStartsWith, List<String> excludeEndsWith, String fileNamePattern) {
+		this.hasIncludes = hasIncludes;
+		this.includeContains = hasIncludes ? containsMatcher(includeContains) : null;
+		this.includeStartsWith = hasIncludes ? Trie.of(includeStartsWith, false) : null;
+		this.includeEndsWith = hasIncludes ? Trie.of(includeEndsWith, true) : null;
+		this.hasExcludes = hasExcludes;
+		this.excludeContains = hasExcludes ? containsMatcher(excludeContains) : null;
+		this.excludeStartsWith = hasExcludes ? Trie.of(excludeStartsWith, false) : null;
+		this.excludeEndsWith = hasExcludes ? Trie.of(excludeEndsWith, true) : null;
+		this.fileNamePattern = fileNamePattern != null ? Pattern.compile(fileNamePattern) : null;
+	}
+
+
+	@Override
+	public boolean test(String path) {
+		if(hasIncludes) {
+			boolean match = (includeContains != null && includeContains.test(path)) ||
+					(includeStartsWith != null && includeStartsWith.matchesStartOf(path)) ||
+					(includeEndsWith != null && includeEndsWith.matchesEndOf(path));
+			if(!match) return false;
+		}
+		if(hasExcludes) {
+			if((excludeContains != null && excludeContains.test(path)) ||
+					(excludeStartsWith != null && excludeStartsWith.matchesStartOf(path)) ||
+					(excludeEndsWith != null && excludeEndsWith.matchesEndOf(path))) {
+				return false;
+			}
+		}
+		if(fileNamePattern != null) {
+			return fileNamePattern.matcher(path).matches();
+		}
+		// match all files by default
+		return true;
+	}
+
+
+	/** Check whether every file in a folder is rejected by the exclude patterns, so the folder does not need to be listed.
+	 * This is the case if the folder's path followed by '/' contains an exclude 'contains' pattern or starts with an
+	 * exclude 'starts with' pattern, since the path of every file in the folder would also match the pattern
+	 * @param folderPath the folder's path with '/' separators and a trailing '/'
+	 * @return true if no files in the folder or its sub-folders can match this filter
+	 */
+	public boolean isFolderExcluded(String folderPath) {
+		return hasExcludes && ((excludeContains != null && excludeContains.test(folderPath)) ||
+				(excludeStartsWith != null && excludeStartsWith.matchesStartOf(folderPath)));
+	}
+
+
+	private static AhoCorasickMatcher containsMatcher(List<String> patterns) {
+		return patterns != null && patterns.size() > 0 ? new AhoCorasickMatcher(patterns) : null;
+	}
+
+
+
+
+	/** An immutable trie of strings which matches strings that start with (or end with, if reversed) any of its strings
+	 * @author TeamworkGuy2
+	 * @since 2026-10-18
+	 */
+	static final class Trie {
+		/** the characters of each node's children, sorted */
+		private final char[][] nodeKeys;
+		/** the child node index for each key in {@link #nodeKeys} */
+		private final int[][] nodeNext;
+		/** true if a string ends at the node */
+		private final boolean[] terminal;
+
+
+		private Trie(char[][] nodeKeys, int[][] nodeNext, boolean[] terminal) {
+			this.nodeKeys = nodeKeys;
+			this.nodeNext = nodeNext;
+			this.terminal = terminal;
+		}
+
+
+		/** Build a trie
+		 * @param strs the strings to add to the trie
+		 * @param reversed true to add the strings last character first and match the ends of strings
+		 * @return the trie or null if {@code strs} is null or empty
+		 */
+		static Trie of(List<String> strs, boolean reversed) {
+			if(strs == null || strs.size() == 0) {
+				return null;
+			}
+			List<TreeMap<Character, Integer>> children = new ArrayList<>();
+			List<Boolean> terminals = new ArrayList<>();
+			children.add(new TreeMap<>());
+			terminals.add(false);
+			for(String str : strs) {
+				int node = 0;
+				for(int i = 0, len = str.length(); i < len; i++) {
+					char ch = str.charAt(reversed ? len - 1 - i : i);
+					Integer next = children.get(node).get(ch);
+					if(next == null) {
+						next = children.size();
+						children.get(node).put(ch, next);
+						children.add(new TreeMap<>());
+						terminals.add(false);
+					}
+					node = next;
+				}
+				terminals.set(node, true);
+			}
+
+			int nodeCount = children.size();
+			char[][] nodeKeys = new char[nodeCount][];
+			int[][] nodeNext = new int[nodeCount][];
+			boolean[] terminal = new boolean[nodeCount];
+			for(int n = 0; n < nodeCount; n++) {
+				TreeMap<Character, Integer> map = children.get(n);
+				char[] keys = new char[map.size()];
+				int[] next = new int[map.size()];
+				int i = 0;
+				for(Map.Entry<Character, Integer> entry : map.entrySet()) {
+					keys[i] = entry.getKey();
+					next[i] = entry.getValue();
+					i++;
+				}
+				nodeKeys[n] = keys;
+				nodeNext[n] = next;
+				terminal[n] = terminals.get(n);
+			}
+			return new Trie(nodeKeys, nodeNext, terminal);
+		}
+
+
+		/**
+		 * @return true if {@code str} starts with one of this trie's strings, only valid if this trie was not built reversed
+		 */
+		boolean matchesStartOf(String str) {
+			int node = 0;
+			for(int i = 0, len = str.length(); ; i++) {
+				if(terminal[node]) return true;
+				if(i >= len || (node = next(node, str.charAt(i))) < 0) return false;
+			}
+		}
+
+
+		/**
+		 * @return true if {@code str} ends with one of this trie's strings, only valid if this trie was built reversed
+		 */
+		boolean matchesEndOf(String str) {
+			int node = 0;
+			for(int i = str.length() - 1; ; i--) {
+				if(terminal[node]) return true;
+				if(i < 0 || (node = next(node, str.charAt(i))) < 0) return false;
+			}
+		}
+
+
+		private int next(int node, char ch) {
+			int idx = Arrays.binarySearch(nodeKeys[node], ch);
+			return idx > -1 ? nodeNext[node][idx] : -1;
+		}
+
+	}
+
+}
@@ -0,0 +1,64 @@
+package twg2.fileManipulator;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** A regular expression {@link StringMatcher}.  The pattern is compiled once and each thread
+ * reuses a single {@link Matcher} by {@link Matcher#reset(CharSequence) resetting} it for each line.
+ * Replacement strings passed to {@link #replaceAll(String, String)} can contain group references
+ * such as {@code $1}, see {@link Matcher#replaceAll(String)}
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public final class RegexMatcher implements StringMatcher {
+	private final Pattern pattern;
+	private final ThreadLocal<Matcher> matcher;
+
+
+	public RegexMatcher(String regex) {
+		this(Pattern.compile(regex));
+	}
+
+
+	public RegexMatcher(Pattern pattern) {
+		this.pattern = pattern;
+		this.matcher = ThreadLocal.withInitial(() -> pattern.matcher(""));
+	}
+
+
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+
+	@Override
+	public boolean test(String str) {
+		return matcher.get().reset(str).find();
+	}
+
+
+	@Override
+	public int indexOf(String str, int fromIndex) {
+		Matcher m = matcher.get().reset(str);
+		return fromIndex <= str.length() && m.find(Math.max(fromIndex, 0)) ? m.start() : -1;
+	}
+
+
+	@Override
+	public String replaceAll(String str, String replacement) {
+		return matcher.get().reset(str).replaceAll(replacement);
+	}
+
+
+	@Override
+	public String getLiteral() {
+		return null;
+	}
+
+
+	@Override
+	public String toString() {
+		return "RegexMatcher(" + pattern + ")";
+	}
+
+}
@@ -0,0 +1,136 @@
+package twg2.fileManipulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/** A snapshot of the size, last modified time, and content checksum of each file loaded by a {@link FileManipulator},
+ * saved to a manifest file in the project folder.  When the project is loaded again, files whose size and last modified time
+ * match the manifest are assumed to be unchanged and are not read until their lines are needed
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class SnapshotManifest {
+	/** the name of the manifest file, created in the root folder of the loaded files */
+	public static final String MANIFEST_FILE_NAME = ".filemanipulator-manifest";
+	private static final int MAGIC = 0x534E4150;
+	private static final int VERSION = 1;
+
+
+	private SnapshotManifest() { throw new AssertionError("cannot instantiate static class SnapshotManifest"); }
+
+
+	/** Load a manifest file
+	 * @param manifestFile the manifest file
+	 * @return the manifest entries by file path relative to the manifest's root folder, empty if the
+	 * manifest file does not exist or is not a valid manifest
+	 * @throws IOException if there is an error reading the manifest file
+	 */
+	public static Map<String, Entry> load(Path manifestFile) throws IOException {
+		Map<String, Entry> entries = new HashMap<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifestFile)))) {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return entries;
+			}
+			int fileCount = in.readInt();
+			for(int i = 0; i < fileCount; i++) {
+				String path = in.readUTF();
+				entries.put(path, new Entry(in.readLong(), in.readLong(), in.readLong()));
+			}
+		} catch (NoSuchFileException e) {
+			// no manifest yet
+		} catch (EOFException e) {
+			// truncated manifest, the entries read so far are still valid
+		}
+		return entries;
+	}
+
+
+	/** Save a manifest of a set of files, files with an unknown {@link FileInfo#getContentLength() content length} are skipped.
+	 * The manifest is written to a temporary file which is then moved over the manifest file
+	 * @param manifestFile the manifest file
+	 * @param rootFolder the folder which the files are in, files are stored in the manifest by their path relative to this folder
+	 * @param files the files to save
+	 * @throws IOException if there is an error writing the manifest file
+	 */
+	public static void save(Path manifestFile, Path rootFolder, Collection<FileInfo> files) throws IOException {
+		Path absRoot = rootFolder.toAbsolutePath();
+		Path absManifestFile = manifestFile.toAbsolutePath();
+		Path tmpFile = Files.createTempFile(absManifestFile.getParent(), "." + absManifestFile.getFileName() + ".", ".tmp");
+		try {
+			int count = 0;
+			for(FileInfo fileInfo : files) {
+				if(fileInfo.getContentLength() > -1) {
+					count++;
+				}
+			}
+			try (OutputStream os = Files.newOutputStream(tmpFile);
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(count);
+				for(FileInfo fileInfo : files) {
+					if(fileInfo.getContentLength() > -1) {
+						out.writeUTF(relativePath(absRoot, fileInfo.getFile()));
+						out.writeLong(fileInfo.getContentLength());
+						out.writeLong(fileInfo.getLastModified());
+						out.writeLong(fileInfo.getContentHash());
+					}
+				}
+			}
+			FileSaver.replaceFile(tmpFile, absManifestFile);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tmpFile);
+			throw e;
+		}
+	}
+
+
+	/**
+	 * @return {@code file}'s path relative to {@code absRootFolder} with '/' separators
+	 */
+	static String relativePath(Path absRootFolder, File file) {
+		return absRootFolder.relativize(file.toPath().toAbsolutePath()).toString().replace('\\', '/');
+	}
+
+
+
+
+	/** The size, last modified time, and content checksum of a file
+	 * @author TeamworkGuy2
+	 * @since 2026-10-18
+	 */
+	static final class Entry {
+		final long length;
+		final long lastModified;
+		final long hash;
+
+
+		Entry(long length, long lastModified, long hash) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+
+
+		/**
+		 * @return true if a file with this size and last modified time is assumed to be unchanged since this entry was saved
+		 */
+		boolean matches(long length, long lastModified) {
+			return this.length == length && this.lastModified == lastModified;
+		}
+
+	}
+
+}
@@ -0,0 +1,167 @@
+package twg2.fileManipulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import twg2.collections.primitiveCollections.IntArrayList;
+import twg2.fileManipulator.ManipulateLines.DebugOp;
+
+/** Search the files in a folder one file at a time without keeping the folder's contents in memory.
+ * Each file is read, searched, its matching lines are passed to the {@link DebugOp} callbacks and then the
+ * file is discarded, so memory use is bounded by the largest file(s) being searched rather than the total
+ * size of the folder.  Use {@link FileManipulator} when the matching lines need to be modified.<br>
+ * Files in charsets supported by {@link MappedFileSearch} are searched byte-by-byte and only their matching lines are decoded.
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public class StreamingFileSearch {
+	private final Path rootFolder;
+	private final Predicate<String> pathFilter;
+	private final Charset cs;
+	private final int parallelism;
+	private final boolean skipBinaryFiles;
+	private final boolean useIgnoreFiles;
+	private final AtomicInteger fileCount = new AtomicInteger();
+	private final AtomicInteger matchingFileCount = new AtomicInteger();
+	private final AtomicInteger matchingLineCount = new AtomicInteger();
+
+
+	/**
+	 * @param rootFolder the folder to search files in
+	 * @param pathFilter a filter for the files found in the {@code rootFolder}, see
+	 * {@link FileManipulator#FileManipulator(Path, Predicate, Charset, String, int)}. Null allowed
+	 * @param cs the charset of the files being searched
+	 * @param parallelism the number of files to read and search at the same time, 1 searches files
+	 * one at a time on the calling thread
+	 */
+	public StreamingFileSearch(Path rootFolder, Predicate<String> pathFilter, Charset cs, int parallelism) {
+		this(rootFolder, pathFilter, cs, parallelism, false);
+	}
+
+
+	/**
+	 * @param rootFolder the folder to search files in
+	 * @param pathFilter a filter for the files found in the {@code rootFolder}, see
+	 * {@link FileManipulator#FileManipulator(Path, Predicate, Charset, String, int)}. Null allowed
+	 * @param cs the charset of the files being searched
+	 * @param parallelism the number of files to read and search at the same time, 1 searches files
+	 * one at a time on the calling thread
+	 * @param skipBinaryFiles true to skip files which appear to be binary, see {@link FileLoadSettings#setSkipBinaryFiles(boolean)}
+	 */
+	public StreamingFileSearch(Path rootFolder, Predicate<String> pathFilter, Charset cs, int parallelism, boolean skipBinaryFiles) {
+		this(rootFolder, pathFilter, cs, parallelism, skipBinaryFiles, false);
+	}
+
+
+	/**
+	 * @param rootFolder the folder to search files in
+	 * @param pathFilter a filter for the files found in the {@code rootFolder}, see
+	 * {@link FileManipulator#FileManipulator(Path, Predicate, Charset, String, int)}. Null allowed
+	 * @param cs the charset of the files being searched
+	 * @param parallelism the number of files to read and search at the same time, 1 searches files
+	 * one at a time on the calling thread
+	 * @param skipBinaryFiles true to skip files which appear to be binary, see {@link FileLoadSettings#setSkipBinaryFiles(boolean)}
+	 * @param useIgnoreFiles true to skip files and folders ignored by '.gitignore' and '.ignore' files, see {@link FileLoadSettings#setUseIgnoreFiles(boolean)}
+	 */
+	public StreamingFileSearch(Path rootFolder, Predicate<String> pathFilter, Charset cs, int parallelism, boolean skipBinaryFiles, boolean useIgnoreFiles) {
+		this.rootFolder = rootFolder;
+		this.pathFilter = pathFilter;
+		this.cs = cs;
+		this.parallelism = parallelism;
+		this.skipBinaryFiles = skipBinaryFiles;
+		this.useIgnoreFiles = useIgnoreFiles;
+	}
+
+
+	/** Search each file in this search's folder for a string and pass the results to a set of callback functions.
+	 * See {@link ManipulateLines#lineOperation(DebugOp, Consumer, Consumer, BiConsumer, BiConsumer)} for a
+	 * description of the callbacks.  Each file's results are passed to the callbacks together, the callbacks
+	 * are never called concurrently, even if this search's parallelism is greater than 1
+	 * @param searchStr the string to search for. The string is compared to
+	 * individual lines, a search string cannot match across multiple lines
+	 * @return this instance
+	 */
+	public StreamingFileSearch search(String searchStr, DebugOp op, Consumer<File> matchingFile, Consumer<String> matchingLine,
+			BiConsumer<Integer, File> matchingLineCountPerFile, BiConsumer<String, File> matchingLineFromFile) {
+		return search(StringMatcher.of(searchStr), op, matchingFile, matchingLine, matchingLineCountPerFile, matchingLineFromFile);
+	}
+
+
+	/** Search each file in this search's folder for matches and pass the results to a set of callback functions.
+	 * See {@link #search(String, DebugOp, Consumer, Consumer, BiConsumer, BiConsumer)}
+	 * @param matcher the matcher to search with, files are searched byte-by-byte if the matcher has a
+	 * {@link StringMatcher#getLiteral() literal} search string supported by {@link MappedFileSearch}
+	 * @return this instance
+	 */
+	public StreamingFileSearch search(StringMatcher matcher, DebugOp op, Consumer<File> matchingFile, Consumer<String> matchingLine,
+			BiConsumer<Integer, File> matchingLineCountPerFile, BiConsumer<String, File> matchingLineFromFile) {
+		Object resultLock = new Object();
+		// search the raw bytes of each file when possible, so only matching lines are decoded
+		String literal = matcher.getLiteral();
+		byte[] searchBytes = literal != null && MappedFileSearch.isSupported(literal, cs) ? literal.getBytes(cs) : null;
+
+		IgnoreFiles ignoreFiles = useIgnoreFiles ? new IgnoreFiles(rootFolder) : null;
+		FileWalker.forEachFile(rootFolder.toFile(), pathFilter, ignoreFiles, parallelism, (folder, file) -> {
+			FileLineSearch lineMatches = null;
+			try {
+				if(skipBinaryFiles && BinarySniffer.isBinary(file.toPath(), cs)) {
+					return;
+				}
+				if(searchBytes != null) {
+					IntArrayList lineNums = new IntArrayList();
+					List<String> lines = new ArrayList<>();
+					if(MappedFileSearch.searchFile(file, cs, searchBytes, lineNums, lines)) {
+						// the file's lines are not loaded, only the matching lines
+						lineMatches = new FileLineSearch(new FileInfo(file, null), lineNums, lines);
+					}
+				}
+				else {
+					lineMatches = FileManipulator.searchLines(new FileInfo(file, FileManipulator.readLines(file.toPath(), cs)), matcher);
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(file.toString(), e);
+			}
+			fileCount.incrementAndGet();
+
+			if(lineMatches != null) {
+				matchingFileCount.incrementAndGet();
+				matchingLineCount.addAndGet(lineMatches.getMatchingLines().size());
+				synchronized(resultLock) {
+					ManipulateLines.lineOperation(op, file, lineMatches, matchingFile, matchingLine, matchingLineCountPerFile, matchingLineFromFile);
+				}
+			}
+		});
+
+		return this;
+	}
+
+
+	/**
+	 * @return the number of files searched
+	 */
+	public int getFileCount() {
+		return fileCount.get();
+	}
+
+
+	/**
+	 * @return the number of files containing at least one matching line
+	 */
+	public int getMatchingSourceCount() {
+		return matchingFileCount.get();
+	}
+
+
+	public int getMatchingLineCount() {
+		return matchingLineCount.get();
+	}
+
+}
@@ -0,0 +1,50 @@
+package twg2.fileManipulator;
+
+import java.util.function.Predicate;
+
+/** A precompiled search for matches within a line of text.
+ * Implementations are immutable and thread-safe unless otherwise noted
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public interface StringMatcher extends Predicate<String> {
+
+	/**
+	 * @param str the string to search
+	 * @param fromIndex the index in {@code str} to start searching from
+	 * @return the index of the first match in {@code str} at or after {@code fromIndex}, or -1 if there is no match
+	 */
+	public int indexOf(String str, int fromIndex);
+
+
+	/**
+	 * @return a copy of {@code str} with every match replaced by {@code replacement}
+	 */
+	public String replaceAll(String str, String replacement);
+
+
+	/**
+	 * @return the literal string this matcher searches for, or null if this matcher does not search for a literal string
+	 */
+	public String getLiteral();
+
+
+	/**
+	 * @return true if {@code str} contains at least one match
+	 */
+	@Override
+	public default boolean test(String str) {
+		return indexOf(str, 0) > -1;
+	}
+
+
+	/** Create a matcher for a literal search string, picking the fastest search algorithm for the string's length
+	 * @param searchStr the string to search for
+	 * @return {@link IndexOfMatcher} for short search strings and {@link HorspoolMatcher} for search strings
+	 * of {@link HorspoolMatcher#MIN_LENGTH} or more characters
+	 */
+	public static StringMatcher of(String searchStr) {
+		return searchStr.length() >= HorspoolMatcher.MIN_LENGTH ? new HorspoolMatcher(searchStr) : new IndexOfMatcher(searchStr);
+	}
+
+}
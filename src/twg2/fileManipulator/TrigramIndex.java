@@ -0,0 +1,433 @@
+package twg2.fileManipulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import twg2.collections.primitiveCollections.IntArrayList;
+
+/** An inverted index from each trigram (3 consecutive characters within a line) to the files containing it.
+ * Used to narrow the files searched for a literal search string of at least {@link #MIN_QUERY_LENGTH} characters
+ * to the files containing every trigram of the search string, before the exact line by line search.<br>
+ * Each file's set of trigrams is persisted to a cache file along with the file's
+ * {@link FileInfo#getContentLength() length, checksum}, and last modified time, so unchanged files are not re-indexed by the next run.
+ * Lazily loaded files whose lines have not been read yet are compared by their size and last modified time so that they are not read
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+final class TrigramIndex {
+	/** the default name of the index cache file, created in the root folder of the indexed files */
+	public static final String CACHE_FILE_NAME = ".filemanipulator-trigrams";
+	/** the minimum length of a search string which can be looked up in the index */
+	public static final int MIN_QUERY_LENGTH = 3;
+	private static final int MAGIC = 0x54524947;
+	private static final int VERSION = 2;
+
+	private final Path rootFolder;
+	private final Path cacheFile;
+	/** index entries by file */
+	private final Map<File, Entry> entries = new HashMap<>();
+	/** index entries by id, entries which have been replaced or removed are null */
+	private final List<Entry> entriesById = new ArrayList<>();
+	/** the ids of the entries containing each trigram, in ascending order */
+	private final Map<Long, IntArrayList> postings = new HashMap<>();
+	/** entries read from the cache file, by path relative to the root folder, which have not been matched to a loaded file yet */
+	private Map<String, Entry> cachedEntries;
+	private boolean modified;
+
+
+	/**
+	 * @param rootFolder the folder which the indexed files are in, files are stored in the cache by their path relative to this folder
+	 * @param cacheFile the file to load and save the index from/to
+	 */
+	private TrigramIndex(Path rootFolder, Path cacheFile) {
+		this.rootFolder = rootFolder.toAbsolutePath();
+		this.cacheFile = cacheFile;
+	}
+
+
+	public Path getCacheFile() {
+		return cacheFile;
+	}
+
+
+	public int getFileCount() {
+		return entries.size();
+	}
+
+
+	/** Load an index from a cache file.  The cached entries are only used by {@link #build(List, int)} for files
+	 * which have not changed since they were indexed
+	 * @param rootFolder the folder which the indexed files are in
+	 * @param cacheFile the cache file, if it does not exist or is not a valid index cache file, the index starts out empty
+	 * @return the index
+	 * @throws IOException if there is an error reading the cache file
+	 */
+	public static TrigramIndex load(Path rootFolder, Path cacheFile) throws IOException {
+		TrigramIndex index = new TrigramIndex(rootFolder, cacheFile);
+		index.cachedEntries = new HashMap<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return index;
+			}
+			int fileCount = in.readInt();
+			for(int i = 0; i < fileCount; i++) {
+				String path = in.readUTF();
+				long length = in.readLong();
+				long hash = in.readLong();
+				long lastModified = in.readLong();
+				long[] trigrams = new long[readVarInt(in)];
+				long prev = 0;
+				for(int k = 0; k < trigrams.length; k++) {
+					prev += readVarLong(in);
+					trigrams[k] = prev;
+				}
+				index.cachedEntries.put(path, new Entry(null, length, hash, lastModified, trigrams));
+			}
+		} catch (NoSuchFileException e) {
+			// no cache yet
+		} catch (EOFException e) {
+			// truncated cache file, ignore the partially read entries, they are only reused if their checksums match
+		}
+		return index;
+	}
+
+
+	/** Index a set of files, replacing the current index.  Files which were previously indexed, or which were in the cache file
+	 * this index was loaded from, and whose {@link FileInfo#getContentLength() length} and {@link FileInfo#getContentHash() checksum}
+	 * have not changed, are not re-indexed.  Lazily loaded files which have not been read yet are not read if their size and last modified time have not changed.  Files which are not in {@code files} are removed from the index
+	 * @param files the files to index
+	 * @param parallelism the number of threads to use to index changed files
+	 */
+	public void build(List<FileInfo> files, int parallelism) {
+		Map<File, Entry> prevEntries = new HashMap<>(entries);
+		entries.clear();
+		entriesById.clear();
+		postings.clear();
+
+		Entry[] newEntries = new Entry[files.size()];
+		List<Integer> changed = new ArrayList<>();
+		for(int i = 0, size = files.size(); i < size; i++) {
+			FileInfo fileInfo = files.get(i);
+			Entry entry = prevEntries.remove(fileInfo.getFile());
+			if(entry == null && cachedEntries != null) {
+				entry = cachedEntries.remove(relativePath(fileInfo.getFile()));
+			}
+			if(entry != null && entry.isCurrent(fileInfo)) {
+				newEntries[i] = new Entry(fileInfo.getFile(), entry.length, entry.hash, entry.lastModified, entry.trigrams);
+			}
+			else {
+				changed.add(i);
+			}
+		}
+		// previously indexed or cached files which no longer exist
+		if(prevEntries.size() > 0 || (cachedEntries != null && cachedEntries.size() > 0)) {
+			modified = true;
+		}
+		cachedEntries = null;
+
+		// extract the trigrams of the new and changed files, each task writes to its own array element
+		ParallelTasks.forEach(changed, parallelism, FileManipulator.SEARCH_BATCH_SIZE, (idx) -> {
+			newEntries[idx] = createEntry(files.get(idx));
+		});
+		if(changed.size() > 0) {
+			modified = true;
+		}
+
+		for(Entry entry : newEntries) {
+			add(entry);
+		}
+	}
+
+
+	/** Re-index files which have been saved, files which have not changed since they were indexed are skipped
+	 * @param files the files to update
+	 */
+	public void update(List<FileInfo> files) {
+		for(FileInfo fileInfo : files) {
+			Entry prevEntry = entries.get(fileInfo.getFile());
+			if(prevEntry != null) {
+				if(prevEntry.isCurrent(fileInfo)) {
+					continue;
+				}
+				entriesById.set(prevEntry.id, null);
+			}
+			add(createEntry(fileInfo));
+			modified = true;
+		}
+	}
+
+
+	/** Find the files which could contain a search string
+	 * @param searchStr the literal search string
+	 * @return the indexed files containing every trigram in {@code searchStr}, or null if {@code searchStr} is
+	 * shorter than {@link #MIN_QUERY_LENGTH} and every file could contain it
+	 */
+	public List<File> getCandidateFiles(String searchStr) {
+		if(searchStr.length() < MIN_QUERY_LENGTH) {
+			return null;
+		}
+
+		long[] searchTrigrams = trigrams(Arrays.asList(searchStr));
+		IntArrayList[] lists = new IntArrayList[searchTrigrams.length];
+		for(int i = 0; i < searchTrigrams.length; i++) {
+			lists[i] = postings.get(searchTrigrams[i]);
+			if(lists[i] == null) {
+				return new ArrayList<>();
+			}
+		}
+		// intersect the shortest lists first
+		Arrays.sort(lists, Comparator.comparingInt(IntArrayList::size));
+
+		int[] ids = lists[0].toArray();
+		int count = ids.length;
+		for(int i = 1; i < lists.length && count > 0; i++) {
+			count = intersect(ids, count, lists[i]);
+		}
+
+		List<File> files = new ArrayList<>(count);
+		for(int i = 0; i < count; i++) {
+			Entry entry = entriesById.get(ids[i]);
+			if(entry != null) {
+				files.add(entry.file);
+			}
+		}
+		return files;
+	}
+
+
+	/** Save this index to its cache file if it has changed since it was loaded or last saved.
+	 * The index is written to a temporary file which is then moved over the cache file
+	 * @throws IOException if there is an error writing the cache file
+	 */
+	public void save() throws IOException {
+		if(!modified) {
+			return;
+		}
+		Path absCacheFile = cacheFile.toAbsolutePath();
+		Path tmpFile = Files.createTempFile(absCacheFile.getParent(), "." + absCacheFile.getFileName() + ".", ".tmp");
+		try {
+			try (OutputStream os = Files.newOutputStream(tmpFile);
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(entries.size());
+				for(Entry entry : entries.values()) {
+					out.writeUTF(relativePath(entry.file));
+					out.writeLong(entry.length);
+					out.writeLong(entry.hash);
+					out.writeLong(entry.lastModified);
+					long[] trigrams = entry.trigrams;
+					writeVarInt(out, trigrams.length);
+					long prev = 0;
+					for(long trigram : trigrams) {
+						writeVarLong(out, trigram - prev);
+						prev = trigram;
+					}
+				}
+			}
+			FileSaver.replaceFile(tmpFile, absCacheFile);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tmpFile);
+			throw e;
+		}
+		modified = false;
+	}
+
+
+	private static Entry createEntry(FileInfo fileInfo) {
+		// read the lines of a lazily loaded file first, its length and checksum are not known until they are read
+		long[] trigrams = trigrams(fileInfo.getLines());
+		// unsaved lines do not match the file's checksum, so the entry is never reused for the file's saved contents
+		long length = fileInfo.isLinesModified() ? -1 : fileInfo.getContentLength();
+		return new Entry(fileInfo.getFile(), length, fileInfo.getContentHash(), fileInfo.getLastModified(), trigrams);
+	}
+
+
+	private void add(Entry entry) {
+		entry.id = entriesById.size();
+		entriesById.add(entry);
+		entries.put(entry.file, entry);
+		for(long trigram : entry.trigrams) {
+			IntArrayList ids = postings.get(trigram);
+			if(ids == null) {
+				ids = new IntArrayList();
+				postings.put(trigram, ids);
+			}
+			ids.add(entry.id);
+		}
+	}
+
+
+	private String relativePath(File file) {
+		return SnapshotManifest.relativePath(rootFolder, file);
+	}
+
+
+	/** Get the unique trigrams of a set of lines, trigrams do not span lines
+	 * @return the trigrams, sorted in ascending order
+	 */
+	static long[] trigrams(List<String> lines) {
+		long[] buf = new long[1024];
+		int size = 0;
+		for(String line : lines) {
+			for(int i = 0, end = line.length() - 2; i < end; i++) {
+				if(size == buf.length) {
+					size = sortUnique(buf, size);
+					// grow if removing duplicates did not free up enough space
+					if(size > buf.length / 2) {
+						buf = Arrays.copyOf(buf, buf.length * 2);
+					}
+				}
+				buf[size++] = trigram(line.charAt(i), line.charAt(i + 1), line.charAt(i + 2));
+			}
+		}
+		size = sortUnique(buf, size);
+		return Arrays.copyOf(buf, size);
+	}
+
+
+	private static long trigram(char ch1, char ch2, char ch3) {
+		return ((long)ch1 << 32) | ((long)ch2 << 16) | ch3;
+	}
+
+
+	private static int sortUnique(long[] buf, int size) {
+		if(size < 2) {
+			return size;
+		}
+		Arrays.sort(buf, 0, size);
+		int dst = 1;
+		for(int i = 1; i < size; i++) {
+			if(buf[i] != buf[dst - 1]) {
+				buf[dst++] = buf[i];
+			}
+		}
+		return dst;
+	}
+
+
+	/** Intersect a sorted array of ids with a sorted list of ids, storing the result in {@code ids}
+	 * @return the number of ids in the intersection
+	 */
+	private static int intersect(int[] ids, int count, IntArrayList list) {
+		int dst = 0;
+		for(int i = 0, k = 0, size = list.size(); i < count && k < size; ) {
+			int a = ids[i];
+			int b = list.get(k);
+			if(a < b) {
+				i++;
+			}
+			else if(a > b) {
+				k++;
+			}
+			else {
+				ids[dst++] = a;
+				i++;
+				k++;
+			}
+		}
+		return dst;
+	}
+
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		writeVarLong(out, value);
+	}
+
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while((value & ~0x7FL) != 0) {
+			out.write((int)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int)value);
+	}
+
+
+	private static int readVarInt(InputStream in) throws IOException {
+		return (int)readVarLong(in);
+	}
+
+
+	private static long readVarLong(InputStream in) throws IOException {
+		long value = 0;
+		for(int shift = 0; ; shift += 7) {
+			int b = in.read();
+			if(b < 0) {
+				throw new EOFException();
+			}
+			value |= (long)(b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+
+
+
+
+	/** A file's indexed trigrams and the length, checksum, and last modified time of the file's contents when it was indexed
+	 * @author TeamworkGuy2
+	 * @since 2026-10-18
+	 */
+	static final class Entry {
+		final File file;
+		final long length;
+		final long hash;
+		/** the file's last modified time in milliseconds when it was indexed, 0 if unknown */
+		final long lastModified;
+		final long[] trigrams;
+		int id;
+
+
+		Entry(File file, long length, long hash, long lastModified, long[] trigrams) {
+			this.file = file;
+			this.length = length;
+			this.hash = hash;
+			this.lastModified = lastModified;
+			this.trigrams = trigrams;
+		}
+
+
+		/**
+		 * @return true if the file's contents are known and are the same as when this entry was created, or if the file has
+		 * not been read yet and its size and last modified time are the same as when this entry was created
+		 */
+		boolean isCurrent(FileInfo fileInfo) {
+			if(length < 0) {
+				return false;
+			}
+			if(fileInfo.getContentLength() > -1) {
+				return fileInfo.getContentLength() == length && fileInfo.getContentHash() == hash;
+			}
+			if(lastModified == 0 || fileInfo.isLoaded()) {
+				return false;
+			}
+			try {
+				BasicFileAttributes attrs = Files.readAttributes(fileInfo.getFile().toPath(), BasicFileAttributes.class);
+				return attrs.size() == length && attrs.lastModifiedTime().toMillis() == lastModified;
+			} catch (IOException e) {
+				return false;
+			}
+		}
+
+	}
+
+}
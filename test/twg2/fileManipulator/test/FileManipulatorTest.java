@@ -1,24 +1,46 @@
 package twg2.fileManipulator.test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.lang.reflect.Array;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import twg2.collections.builder.MapUtil;
+import twg2.fileManipulator.CompactLines;
+import twg2.fileManipulator.FileInfo;
+import twg2.fileManipulator.FileLoadSettings;
+import twg2.fileManipulator.FileLoadSettings.LineStorage;
+import twg2.fileManipulator.FileManipulatorDaemon;
 import twg2.fileManipulator.FileManipulator;
 import twg2.fileManipulator.FileManipulatorParameters;
+import twg2.fileManipulator.StreamingFileSearch;
 import twg2.fileManipulator.ManipulateFileLines;
+import twg2.fileManipulator.MultiManipulateFileLines;
+import twg2.fileManipulator.ManipulateLines.DebugOp;
 import twg2.fileManipulator.ManipulateLines.FileLineOp;
 import twg2.tuple.Tuples;
 
@@ -74,6 +96,14 @@ public class FileManipulatorTest {
 						list(""),
 						list("", "heart", "", "head", "lung", "liver")
 					),
+					new FileOpResult(FileLineOp.ADD_LINE_BEFORE, "ea",
+						list("tea", "x"),
+						list("tea", "x", "heart", "tea", "x", "head", "lung", "liver")
+					),
+					new FileOpResult(FileLineOp.ADD_LINE_AFTER, "ea",
+						list("sea", "two", "pea"),
+						list("heart", "sea", "two", "pea", "head", "sea", "two", "pea", "lung", "liver")
+					),
 					new FileOpResult(FileLineOp.APPEND_TO_LINE, "ea",
 						list("-2", "postline"),
 						list("heart-2", "postline", "head-2", "postline", "lung", "liver")
@@ -86,6 +116,14 @@ public class FileManipulatorTest {
 						list("abc", "123", "alpha beta gamma"),
 						list("lung", "liver")
 					),
+					new FileOpResult(FileLineOp.REMOVE_LINE, "l",
+						list(""),
+						list("heart", "head")
+					),
+					new FileOpResult(FileLineOp.REMOVE_LINE, "h",
+						list(""),
+						list("lung", "liver")
+					),
 					new FileOpResult(FileLineOp.REPLACE_LINE, "ea",
 						list("aa", "bb"),
 						list("aa", "bb", "aa", "bb", "lung", "liver")
@@ -169,6 +207,64 @@ public class FileManipulatorTest {
 	}
 
 
+	@Test
+	public void insertedMatchingLinesTest() {
+		Map<File, Map<File, List<String>>> fileLines = new HashMap<>();
+		fileLines.put(new File("folder-A"), MapUtil.map(list("file-A-1"), (name) -> Tuples.of(new File(name), list("heart", "head", "lung", "liver"))));
+		FileManipulator fileManipulator = new FileManipulator(fileLines);
+
+		ManipulateFileLines manipOp = fileManipulator.search("ea");
+		manipOp.manipulateLinesLines(FileLineOp.ADD_LINE_AFTER, list("sea", "two"));
+		manipOp.manipulateLines(FileLineOp.ADD_LINE_BEFORE, "pea");
+		Assert.assertEquals(8, manipOp.getMatchingLineCount());
+		manipOp.manipulateLines(FileLineOp.APPEND_TO_LINE, "!");
+
+		fileManipulator.forEachFile((file, fileInfo) -> {
+			Assert.assertArrayEquals(new String[] {
+				"pea!", "heart!", "pea!", "sea!", "two", "pea!", "head!", "pea!", "sea!", "two", "lung", "liver"
+			}, fileInfo.getLines().toArray());
+		});
+		List<Integer> lineNums = new ArrayList<>();
+		manipOp.forEach((file, line, lineNum) -> lineNums.add(lineNum));
+		Assert.assertEquals(list(0, 1, 2, 3, 5, 6, 7, 8), lineNums);
+	}
+
+
+	@Test
+	public void multiPatternSearchTest() {
+		Map<File, Map<File, List<String>>> fileLines = new HashMap<>();
+		fileLines.put(new File("folder-A"), MapUtil.map(list("file-A-1", "file-A-2"), (name) -> Tuples.of(new File(name), list(
+			"int count = getCount();",
+			"String name = getName();",
+			"return count;",
+			"setCount(getCount() + 1);"
+		))));
+		FileManipulator fileManipulator = new FileManipulator(fileLines);
+
+		Map<String, String> searchReplacements = new LinkedHashMap<>();
+		searchReplacements.put("getCount", "count");
+		searchReplacements.put("Count", "Size");
+		searchReplacements.put("getName", "name");
+		MultiManipulateFileLines res = fileManipulator.searchAll(searchReplacements);
+
+		Assert.assertEquals(4, res.getPatternResults("getCount").getMatchingLineCount());
+		Assert.assertEquals(4, res.getPatternResults("Count").getMatchingLineCount());
+		Assert.assertEquals(2, res.getPatternResults("getName").getMatchingLineCount());
+		Assert.assertEquals(6, res.getCombinedResults().getMatchingLineCount());
+
+		res.replaceAll();
+		fileManipulator.forEachFile((file, fileInfo) -> {
+			Assert.assertArrayEquals(new String[] {
+				"int count = count();",
+				"String name = name();",
+				"return count;",
+				"setSize(count() + 1);"
+			}, fileInfo.getLines().toArray());
+			Assert.assertTrue(fileInfo.isLinesModified());
+		});
+	}
+
+
 	@Test
 	public void fileManipulatorParametersTest() {
 		FileManipulatorParameters fmp = new FileManipulatorParameters(cs);
@@ -210,6 +306,802 @@ public class FileManipulatorTest {
 	}
 
 
+	@Test
+	public void fileNameMatchManyPatternsTest() {
+		List<String> excludes = new ArrayList<>();
+		for(int i = 0; i < 500; i++) {
+			excludes.add("/gen-" + i + "/");
+			excludes.add("^/tmp" + i + "/");
+			excludes.add(".ext" + i + "$");
+		}
+		FileManipulatorParameters fmp = new FileManipulatorParameters(cs);
+		fmp.setExcludePatterns(excludes);
+		fmp.setSearchDirectory("matching /proj/*.cs");
+		String[] res = filter(list(
+				"/proj/src/main.cs",
+				"/proj/gen-42/main.cs",
+				"/proj/gen-4200/main.cs",
+				"/tmp499/proj/main.cs",
+				"/proj/tmp499/main.cs",
+				"/proj/main.cs.ext7",
+				"/proj/main.ext7.cs",
+				"/other/main.cs"
+		), fmp::isFileNameMatch);
+		Assert.assertArrayEquals(new String[] {
+				"/proj/src/main.cs",
+				"/proj/gen-4200/main.cs",
+				"/proj/tmp499/main.cs",
+				"/proj/main.ext7.cs"
+		}, res);
+
+		// changing the patterns recompiles the filter
+		fmp.setIncludePatterns(list("/src/"));
+		Assert.assertTrue(fmp.isFileNameMatch("/proj/src/main.cs"));
+		Assert.assertFalse(fmp.isFileNameMatch("/proj/main.ext7.cs"));
+	}
+
+
+	@Test
+	public void excludedFolderTest() throws IOException {
+		Path root = createTestFolder();
+		try {
+			Path modules = Files.createDirectories(root.resolve("dir-0").resolve("node_modules").resolve("lib"));
+			Files.write(modules.resolve("index.js"), list("module"), cs);
+			Files.write(root.resolve("dir-1").resolve("node_modules.txt"), list("not a module"), cs);
+			try {
+				// a link to a parent folder is not followed in a loop
+				Files.createSymbolicLink(root.resolve("dir-2").resolve("sub").resolve("loop"), root.resolve("dir-2"));
+			} catch (UnsupportedOperationException | IOException e) {
+				// symbolic links are not supported on this file system
+			}
+
+			FileManipulatorParameters params = new FileManipulatorParameters(cs);
+			params.setExcludePatterns(list("/node_modules/", ".bin$", "/loop/"));
+			for(int parallelism : new int[] { 1, 3 }) {
+				FileManipulator fileManipulator = new FileManipulator(root, params.getPathFilter(), cs, "\n", parallelism);
+				Assert.assertEquals(41, fileManipulator.getFileCount());
+				Assert.assertEquals(1, fileManipulator.search("module").getMatchingSourceCount());
+			}
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void ignoreFilesTest() throws IOException {
+		Path root = Files.createTempDirectory("file-manipulator-test");
+		try {
+			Files.write(root.resolve(".gitignore"), list("# build output", "*.log", "build/", "/top.txt", "!keep.log", "docs/**/*.md"), cs);
+			for(String path : list("a.log", "keep.log", "top.txt", "build.txt", "build/x.txt", "docs/c.md", "docs/a/b/c.md", "docs/readme.txt",
+					"sub/top.txt", "sub/x.log", "sub/y.log", "sub/build/x.txt", ".git/config")) {
+				Path file = root.resolve(path);
+				Files.createDirectories(file.getParent());
+				Files.write(file, list("text"), cs);
+			}
+			Files.write(root.resolve("sub").resolve(".ignore"), list("!x.log"), cs);
+
+			for(int parallelism : new int[] { 1, 2 }) {
+				FileLoadSettings settings = new FileLoadSettings(parallelism, false, LineStorage.STRINGS);
+				settings.setUseIgnoreFiles(true);
+				FileManipulator fileManipulator = new FileManipulator(root, null, cs, "\n", settings);
+				List<String> paths = new ArrayList<>();
+				fileManipulator.forEachFile((file, fileInfo) -> paths.add(root.relativize(file.toPath()).toString().replace('\\', '/')));
+				paths.sort(null);
+				Assert.assertEquals(list(".gitignore", "build.txt", "docs/readme.txt", "keep.log", "sub/.ignore", "sub/top.txt", "sub/x.log"), paths);
+
+				List<String> searched = new ArrayList<>();
+				StreamingFileSearch streamSearch = new StreamingFileSearch(root, null, cs, parallelism, false, true);
+				streamSearch.search("text", DebugOp.PRINT_MATCH_FILES, (file) -> searched.add(root.relativize(file.toPath()).toString().replace('\\', '/')), null, null, null);
+				searched.sort(null);
+				Assert.assertEquals(list("build.txt", "docs/readme.txt", "keep.log", "sub/top.txt", "sub/x.log"), searched);
+				Assert.assertEquals(7, streamSearch.getFileCount());
+			}
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void skipBinaryFilesTest() throws IOException {
+		Path root = createTestFolder();
+		try {
+			Files.write(root.resolve("image.png"), new byte[] { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' });
+			byte[] random = new byte[4000];
+			new Random(42).nextBytes(random);
+			for(int i = 0; i < random.length; i++) {
+				random[i] = (byte)(random[i] | 0x80);
+			}
+			Files.write(root.resolve("random.dat"), random);
+			Files.write(root.resolve("unicode.txt"), list("caf\u00E9 \u2603 \uD83D\uDE00 file"), cs);
+			// a few invalid bytes in a text file are decoded as replacement characters rather than skipping the file
+			Files.write(root.resolve("latin1.txt"), "na\u00EFve file text with one accented character".getBytes(StandardCharsets.ISO_8859_1));
+
+			FileLoadSettings settings = new FileLoadSettings(2, false, LineStorage.STRINGS);
+			settings.setSkipBinaryFiles(true);
+			FileManipulator fileManipulator = new FileManipulator(root, null, cs, "\n", settings);
+			Assert.assertEquals(42, fileManipulator.getFileCount());
+			Assert.assertEquals(42, fileManipulator.search(" file").getMatchingSourceCount());
+
+			FileManipulator all = new FileManipulator(root, null, cs, "\n", new FileLoadSettings(2, false, LineStorage.STRINGS));
+			Assert.assertEquals(45, all.getFileCount());
+
+			StreamingFileSearch streamSearch = new StreamingFileSearch(root, null, cs, 1, true);
+			streamSearch.search("line 2", DebugOp.PRINT_MATCH_FILES, (file) -> {}, (line) -> {}, (count, file) -> {}, (line, file) -> {});
+			Assert.assertEquals(42, streamSearch.getFileCount());
+
+			// binary files listed in a manifest saved without skipping binary files are still skipped
+			new FileManipulator(root, null, cs, "\n", new FileLoadSettings(2, true, LineStorage.STRINGS));
+			FileLoadSettings incrementalSettings = new FileLoadSettings(2, true, LineStorage.STRINGS);
+			incrementalSettings.setSkipBinaryFiles(true);
+			FileManipulator incremental = new FileManipulator(root, null, cs, "\n", incrementalSettings);
+			Assert.assertEquals(42, incremental.getFileCount());
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void readFileSizesTest() throws IOException {
+		Path root = Files.createTempDirectory("file-manipulator-test");
+		try {
+			// multi-byte characters and '\r\n' pairs fall on every possible block boundary in the larger files
+			String[] lineTexts = { "\uFEFFfirst", "caf\u00E9 \u2603", "\uD83D\uDE00 emoji", "", "plain text line" };
+			String[] terminators = { "\r\n", "\n", "\r\n", "\r" };
+			int[] lineCounts = { 0, 1, 5, 4000, 100000 };
+			for(int lineCount : lineCounts) {
+				StringBuilder sb = new StringBuilder();
+				for(int i = 0; i < lineCount; i++) {
+					sb.append(i == 0 ? lineTexts[0] : lineTexts[i % lineTexts.length].replace("\uFEFF", "") + i).append(terminators[i % terminators.length]);
+				}
+				sb.append("no terminator");
+				byte[] content = sb.toString().getBytes(cs);
+				Path path = root.resolve("lines-" + lineCount + ".txt");
+				Files.write(path, content);
+
+				FileInfo fileInfo = FileManipulator.readFile(path.toFile(), cs);
+				List<String> expectLines = FileManipulator.readLines(path, cs);
+				Assert.assertEquals(expectLines.size(), fileInfo.getLines().size());
+				Assert.assertEquals(expectLines, fileInfo.getLines());
+				// the requested line storage is used regardless of the file's size
+				Assert.assertFalse(fileInfo.getLines() instanceof CompactLines);
+				Assert.assertEquals(content.length, fileInfo.getContentLength());
+				CRC32C crc = new CRC32C();
+				crc.update(content, 0, content.length);
+				Assert.assertEquals(crc.getValue(), fileInfo.getContentHash());
+				Assert.assertEquals(lineCount > 0, fileInfo.getFormat().hasBom());
+				Assert.assertEquals(lineCount > 0 ? "\r\n" : null, fileInfo.getFormat().getNewline());
+			}
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void parallelLoadTest() throws IOException {
+		Path root = createTestFolder();
+		try {
+			FileManipulator serial = new FileManipulator(root, null, cs, "\n");
+			FileManipulator parallel = new FileManipulator(root, (p) -> !p.endsWith(".bin"), cs, "\n", 4);
+
+			Assert.assertEquals(41, serial.getFileCount());
+			Assert.assertEquals(40, parallel.getFileCount());
+			parallel.forEachFile((file, fileInfo) -> {
+				Assert.assertArrayEquals(list("line 1 of " + file.getName(), "line 2").toArray(), fileInfo.getLines().toArray());
+			});
+
+			ManipulateFileLines parallelRes = parallel.search("line 2");
+			Assert.assertEquals(40, parallelRes.getMatchingSourceCount());
+			Assert.assertEquals(40, parallelRes.getMatchingLineCount());
+			parallelRes.forEach((file, line, lineNum) -> Assert.assertEquals(1, (int)lineNum));
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void searchIndexTest() throws IOException {
+		Path root = createTestFolder();
+		try {
+			FileManipulator fileManipulator = new FileManipulator(root, null, cs, "\n", 2);
+			fileManipulator.enableSearchIndex();
+			Assert.assertTrue(fileManipulator.isSearchIndexEnabled());
+			Assert.assertTrue(Files.exists(root.resolve(".filemanipulator-trigrams")));
+
+			Assert.assertEquals(10, fileManipulator.search("of file-2-").getMatchingSourceCount());
+			Assert.assertEquals(1, fileManipulator.search("file-3-7.txt").getMatchingSourceCount());
+			Assert.assertEquals(0, fileManipulator.search("missing").getMatchingSourceCount());
+			// search strings shorter than a trigram and regular expressions search every file
+			Assert.assertEquals(40, fileManipulator.search("2").getMatchingSourceCount());
+			Assert.assertEquals(10, fileManipulator.searchRegex("file-1-\\d").getMatchingSourceCount());
+			Map<String, String> searchReplacements = new HashMap<>();
+			searchReplacements.put("file-0-1.", "a");
+			searchReplacements.put("file-0-2.", "b");
+			Assert.assertEquals(2, fileManipulator.searchAll(searchReplacements).getCombinedResults().getMatchingSourceCount());
+
+			// modified files are searched even though the index does not contain the modified lines
+			fileManipulator.search("of file-1-4.txt").manipulateLines(FileLineOp.REPLACE_LINE, "new text");
+			Assert.assertEquals(1, fileManipulator.search("new text").getMatchingSourceCount());
+			fileManipulator.saveModifiedFiles(cs);
+			Assert.assertEquals(1, fileManipulator.search("new text").getMatchingSourceCount());
+			Assert.assertEquals(0, fileManipulator.search("of file-1-4.txt").getMatchingSourceCount());
+
+			// the cache file is reused, but files changed by other processes are re-indexed
+			Files.write(root.resolve("dir-3").resolve("sub").resolve("file-3-0.txt"), list("new text", "line 2"), cs);
+			FileManipulator reloaded = new FileManipulator(root, null, cs, "\n");
+			reloaded.enableSearchIndex();
+			Assert.assertEquals(41, reloaded.getFileCount());
+			Assert.assertEquals(2, reloaded.search("new text").getMatchingSourceCount());
+			Assert.assertEquals(9, reloaded.search("of file-3-").getMatchingSourceCount());
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void incrementalLoadTest() throws IOException {
+		Path root = createTestFolder();
+		try {
+			FileManipulator first = new FileManipulator(root, null, cs, "\n", 2, true);
+			first.enableSearchIndex();
+			Assert.assertTrue(Files.exists(root.resolve(".filemanipulator-manifest")));
+			first.forEachFile((file, fileInfo) -> Assert.assertTrue(fileInfo.isLoaded()));
+
+			Path changed = root.resolve("dir-1").resolve("sub").resolve("file-1-5.txt");
+			Files.write(changed, list("changed", "line 2"), cs);
+			Files.setLastModifiedTime(changed, FileTime.fromMillis(Files.getLastModifiedTime(changed).toMillis() + 5000));
+			Files.write(root.resolve("dir-1").resolve("new.txt"), list("new file"), cs);
+
+			// unchanged files are not read until they are searched
+			FileManipulator second = new FileManipulator(root, null, cs, "\n", 1, true);
+			second.enableSearchIndex();
+			Assert.assertEquals(42, second.getFileCount());
+			List<String> loaded = new ArrayList<>();
+			second.forEachFile((file, fileInfo) -> { if(fileInfo.isLoaded()) loaded.add(file.getName()); });
+			loaded.sort(null);
+			Assert.assertEquals(list("file-1-5.txt", "new.txt"), loaded);
+
+			ManipulateFileLines search = second.search("of file-2-3");
+			Assert.assertEquals(1, search.getMatchingSourceCount());
+			search.manipulateLines(FileLineOp.REPLACE_MATCHING_PORTION, "of file two three");
+			second.saveModifiedFiles(cs);
+			Assert.assertEquals(list("line 1 of file two three.txt", "line 2"), Files.readAllLines(root.resolve("dir-2").resolve("sub").resolve("file-2-3.txt"), cs));
+
+			// reload picks up changes made after the manipulator was created
+			Files.delete(root.resolve("dir-1").resolve("new.txt"));
+			Files.write(root.resolve("dir-0").resolve("added.txt"), list("added line"), cs);
+			second.reload();
+			Assert.assertEquals(42, second.getFileCount());
+			Assert.assertEquals(1, second.search("added line").getMatchingSourceCount());
+			Assert.assertEquals(0, second.search("new file").getMatchingSourceCount());
+			Assert.assertEquals(1, second.search("file two three").getMatchingSourceCount());
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void lazyLoadTest() throws IOException {
+		Path root = createTestFolder();
+		try {
+			FileLoadSettings settings = new FileLoadSettings(2, false, LineStorage.STRINGS);
+			settings.setEvictable(true);
+			FileManipulator fileManipulator = new FileManipulator(root, null, cs, "\n", settings);
+			Assert.assertEquals(41, fileManipulator.getFileCount());
+			fileManipulator.forEachFile((file, fileInfo) -> Assert.assertFalse(fileInfo.isLoaded()));
+
+			FileInfo[] file23 = { null };
+			fileManipulator.forEachFile((file, fileInfo) -> { if(file.getName().equals("file-2-3.txt")) file23[0] = fileInfo; });
+			Assert.assertEquals(list("line 1 of file-2-3.txt", "line 2"), file23[0].getLines());
+			Assert.assertTrue(file23[0].isEvictable());
+
+			ManipulateFileLines search = fileManipulator.search("of file-2-3");
+			Assert.assertEquals(1, search.getMatchingSourceCount());
+			search.manipulateLines(FileLineOp.REPLACE_MATCHING_PORTION, "of file two three");
+			// modified lines are kept in memory until they are saved
+			System.gc();
+			Assert.assertTrue(file23[0].isLoaded());
+			Assert.assertEquals(list("line 1 of file two three.txt", "line 2"), file23[0].getLines());
+			fileManipulator.saveModifiedFiles(cs);
+			Assert.assertEquals(list("line 1 of file two three.txt", "line 2"), Files.readAllLines(root.resolve("dir-2").resolve("sub").resolve("file-2-3.txt"), cs));
+			Assert.assertFalse(file23[0].isLinesModified());
+			Assert.assertEquals(list("line 1 of file two three.txt", "line 2"), file23[0].getLines());
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void lazySearchIndexTest() throws IOException {
+		Path root = createTestFolder();
+		try {
+			FileLoadSettings settings = new FileLoadSettings(2, false, LineStorage.STRINGS);
+			settings.setLazy(true);
+			FileManipulator first = new FileManipulator(root, null, cs, "\n", settings);
+			first.enableSearchIndex();
+
+			// unchanged files are matched to the cached index entries without being read
+			FileManipulator second = new FileManipulator(root, null, cs, "\n", settings);
+			second.enableSearchIndex();
+			second.forEachFile((file, fileInfo) -> Assert.assertFalse(fileInfo.isLoaded()));
+			second.reload();
+			second.forEachFile((file, fileInfo) -> Assert.assertFalse(fileInfo.isLoaded()));
+
+			// only the files which the index says contain the search string are read
+			Assert.assertEquals(1, second.search("file-3-7.txt").getMatchingSourceCount());
+			int[] loadedCount = { 0 };
+			second.forEachFile((file, fileInfo) -> { if(fileInfo.isLoaded()) loadedCount[0]++; });
+			Assert.assertEquals(1, loadedCount[0]);
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void daemonTest() throws Exception {
+		Path root = createTestFolder();
+		try {
+			FileManipulator fileManipulator = new FileManipulator(root, null, cs, "\n");
+			FileManipulatorDaemon daemon = new FileManipulatorDaemon(fileManipulator, root, cs);
+			daemon.start();
+			Thread daemonThread = new Thread(daemon::run);
+			daemonThread.start();
+			try {
+				Path daemonFile = root.resolve(FileManipulatorDaemon.DAEMON_FILE_NAME);
+				Assert.assertTrue(Files.exists(daemonFile));
+				PosixFileAttributeView view = Files.getFileAttributeView(daemonFile, PosixFileAttributeView.class);
+				if(view != null) {
+					Assert.assertEquals("rw-------", PosixFilePermissions.toString(view.readAttributes().permissions()));
+				}
+
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				int status = FileManipulatorDaemon.sendCommand(root, list("-searchText", "of file-3-", "-operation", "PRINT_MATCH_LINES"), out);
+				Assert.assertEquals(0, status);
+				Assert.assertTrue(new String(out.toByteArray(), cs).contains("10 files matched"));
+
+				// files changed by other processes are picked up by the next command
+				Files.write(root.resolve("dir-0").resolve("added.txt"), list("added line"), cs);
+				out.reset();
+				status = FileManipulatorDaemon.sendCommand(root, list("-searchText", "added", "-operation", "REPLACE_MATCHING_PORTION", "-replaceText", "daemon"), out);
+				Assert.assertEquals(0, status);
+				Assert.assertEquals(list("daemon line"), Files.readAllLines(root.resolve("dir-0").resolve("added.txt"), cs));
+
+				out.reset();
+				Assert.assertEquals(1, FileManipulatorDaemon.sendCommand(root, list("-operation", "NOT_AN_OP"), out));
+
+				// commands with the wrong token are rejected
+				Path otherFolder = Files.createTempDirectory("file-manipulator-test");
+				try {
+					List<String> daemonInfo = Files.readAllLines(daemonFile, StandardCharsets.UTF_8);
+					Files.write(otherFolder.resolve(FileManipulatorDaemon.DAEMON_FILE_NAME), list(daemonInfo.get(0), "wrong-token"), StandardCharsets.UTF_8);
+					out.reset();
+					Assert.assertEquals(2, FileManipulatorDaemon.sendCommand(otherFolder, list("-reload"), out));
+					Assert.assertTrue(new String(out.toByteArray(), cs).contains("invalid daemon access token"));
+				} finally {
+					deleteRecursively(otherFolder);
+				}
+
+				// the client only prints the daemon's output
+				PrintStream stdout = System.out;
+				ByteArrayOutputStream clientStdout = new ByteArrayOutputStream();
+				out.reset();
+				try {
+					System.setOut(new PrintStream(clientStdout, true, "UTF-8"));
+					Assert.assertEquals(0, FileManipulatorDaemon.runClient(list("-projectPath", root.toString(), "-stop"), cs, new PrintStream(out, true, "UTF-8")));
+				} finally {
+					System.setOut(stdout);
+				}
+				Assert.assertEquals(0, clientStdout.size());
+				daemonThread.join(10000);
+				Assert.assertFalse(daemon.isRunning());
+				Assert.assertFalse(Files.exists(daemonFile));
+			} finally {
+				daemon.stop();
+			}
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void fileWatcherTest() throws Exception {
+		Path root = createTestFolder();
+		FileManipulator fileManipulator = new FileManipulator(root, (p) -> !p.endsWith(".bin"), cs, "\n");
+		try {
+			fileManipulator.enableFileWatcher();
+			Assert.assertTrue(fileManipulator.isFileWatcherEnabled());
+
+			ManipulateFileLines unsaved = fileManipulator.search("of file-0-1.txt");
+			unsaved.manipulateLines(FileLineOp.REPLACE_LINE, "unsaved");
+
+			Files.write(root.resolve("dir-0").resolve("sub").resolve("file-0-0.txt"), list("watched change"), cs);
+			Files.write(root.resolve("dir-0").resolve("sub").resolve("file-0-1.txt"), list("overwritten"), cs);
+			Files.delete(root.resolve("dir-1").resolve("sub").resolve("file-1-0.txt"));
+			Path newDir = Files.createDirectories(root.resolve("dir-4").resolve("sub"));
+			Files.write(newDir.resolve("file-4-0.txt"), list("watched new file"), cs);
+			Files.write(newDir.resolve("data.bin"), new byte[] { 0 });
+
+			// the watch service delivers events asynchronously
+			long deadline = System.currentTimeMillis() + 10000;
+			while(fileManipulator.search("watched").getMatchingSourceCount() < 2 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(50);
+			}
+			Assert.assertEquals(2, fileManipulator.search("watched").getMatchingSourceCount());
+			Assert.assertEquals(40, fileManipulator.getFileCount());
+			Assert.assertEquals(0, fileManipulator.search("of file-1-0.txt").getMatchingSourceCount());
+			// files with unsaved modifications are not reloaded
+			Assert.assertEquals(1, fileManipulator.search("unsaved").getMatchingSourceCount());
+			Assert.assertEquals(0, fileManipulator.search("overwritten").getMatchingSourceCount());
+		} finally {
+			fileManipulator.disableFileWatcher();
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void streamingSearchTest() throws IOException {
+		Path root = createTestFolder();
+		try {
+			// cache and daemon files are never searched
+			Files.write(root.resolve(".filemanipulator-daemon"), list("12345", "token of file-2-"), cs);
+			Files.write(root.resolve(".filemanipulator-trigrams"), list("of file-2-"), cs);
+			List<String> matchLines = new ArrayList<>();
+			StreamingFileSearch search = new StreamingFileSearch(root, null, cs, 2);
+			search.search("of file-2-", DebugOp.PRINT_MATCH_LINES, null, matchLines::add, null, null);
+
+			Assert.assertEquals(41, search.getFileCount());
+			Assert.assertEquals(10, search.getMatchingSourceCount());
+			Assert.assertEquals(10, search.getMatchingLineCount());
+			matchLines.sort(null);
+			Assert.assertEquals("line 1 of file-2-0.txt", matchLines.get(0));
+			Assert.assertEquals("line 1 of file-2-9.txt", matchLines.get(9));
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void byteSearchMatchesLoadedSearchTest() throws IOException {
+		Path root = Files.createTempDirectory("file-manipulator-test");
+		try {
+			StringBuilder large = new StringBuilder();
+			for(int i = 0; i < 40000; i++) {
+				large.append(i % 1000 == 0 ? "needle needle in line " + i : "hay " + i).append(i % 3 == 0 ? "\r\n" : (i % 3 == 1 ? "\n" : "\r"));
+			}
+			Files.write(root.resolve("large.txt"), large.toString().getBytes(StandardCharsets.UTF_8));
+			Files.write(root.resolve("small.txt"), "needle\r\n\u00e9 needle \u00e9\rhay\n\nneedle".getBytes(StandardCharsets.UTF_8));
+
+			List<String> streamed = new ArrayList<>();
+			new StreamingFileSearch(root, null, cs, 1).search("needle", DebugOp.PRINT_MATCHING_LINES_PER_FILE, null, null, null,
+					(line, file) -> streamed.add(file.getName() + ":" + line));
+
+			List<String> loaded = new ArrayList<>();
+			new FileManipulator(root, null, cs, "\n").search("needle").forEach((file, line, lineNum) -> loaded.add(file.getName() + ":" + line));
+
+			streamed.sort(null);
+			loaded.sort(null);
+			Assert.assertEquals(43, loaded.size());
+			Assert.assertEquals(loaded, streamed);
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void saveModifiedFilesTest() throws IOException {
+		Path root = createTestFolder();
+		try {
+			Path file = root.resolve("dir-1").resolve("sub").resolve("file-1-3.txt");
+			boolean posix = Files.getFileAttributeView(file, PosixFileAttributeView.class) != null;
+			if(posix) {
+				Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxr-x---"));
+			}
+
+			FileManipulator fileManipulator = new FileManipulator(root, (p) -> p.endsWith(".txt"), cs, "\n", 4);
+			fileManipulator.search("line 2").manipulateLines(FileLineOp.REPLACE_MATCHING_PORTION, "second line");
+			fileManipulator.saveModifiedFiles(cs, 4);
+
+			Assert.assertEquals(list("line 1 of file-1-3.txt", "second line"), Files.readAllLines(file, cs));
+			if(posix) {
+				Assert.assertEquals("rwxr-x---", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+			}
+			try(Stream<Path> paths = Files.walk(root)) {
+				Assert.assertEquals(0, paths.filter((p) -> p.toString().endsWith(".tmp")).count());
+			}
+			fileManipulator.forEachFile((f, fileInfo) -> Assert.assertFalse(fileInfo.isLinesModified()));
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void saveSymbolicLinkTest() throws IOException {
+		Path root = Files.createTempDirectory("file-manipulator-test");
+		Path targetFolder = Files.createTempDirectory("file-manipulator-test-target");
+		try {
+			Path target = targetFolder.resolve("target.txt");
+			Files.write(target, list("linked line 1", "linked line 2"), cs);
+			Path link = root.resolve("link.txt");
+			try {
+				Files.createSymbolicLink(link, target);
+			} catch (UnsupportedOperationException | IOException e) {
+				// symbolic links are not supported or not permitted
+				return;
+			}
+
+			FileManipulator fileManipulator = new FileManipulator(root, null, cs, "\n");
+			fileManipulator.search("line 2").manipulateLines(FileLineOp.REPLACE_MATCHING_PORTION, "line two");
+			fileManipulator.saveModifiedFiles(cs);
+
+			// the link's target is written through the link and the link is kept
+			Assert.assertTrue(Files.isSymbolicLink(link));
+			Assert.assertEquals(list("linked line 1", "linked line two"), Files.readAllLines(target, cs));
+			Assert.assertEquals(list("linked line 1", "linked line two"), Files.readAllLines(link, cs));
+			try(Stream<Path> paths = Files.list(targetFolder)) {
+				Assert.assertEquals(1, paths.count());
+			}
+		} finally {
+			deleteRecursively(root);
+			deleteRecursively(targetFolder);
+		}
+	}
+
+
+	@Test
+	public void saveNewlineTest() throws IOException {
+		Path root = Files.createTempDirectory("file-manipulator-test");
+		try {
+			List<String> lines = new ArrayList<>();
+			for(int i = 0; i < 20000; i++) {
+				lines.add("line \u00e9\u4e2d\ud83d\ude00 " + i);
+			}
+			Files.write(root.resolve("a.txt"), lines, cs);
+			// a file without line terminators is saved using the manipulator's newline
+			Files.write(root.resolve("b.txt"), "line b".getBytes(cs));
+
+			FileManipulator fileManipulator = new FileManipulator(root, null, cs, "\r\n");
+			fileManipulator.search("line").manipulateLines(FileLineOp.PREPEND_TO_LINE, "a ");
+			fileManipulator.search("line b").manipulateLines(FileLineOp.ADD_LINE_AFTER, "line c");
+			fileManipulator.saveModifiedFiles(cs);
+
+			StringBuilder expect = new StringBuilder();
+			for(String line : lines) {
+				expect.append("a ").append(line).append("\n");
+			}
+			Assert.assertEquals(expect.toString(), new String(Files.readAllBytes(root.resolve("a.txt")), cs));
+			Assert.assertEquals("a line b\r\nline c", new String(Files.readAllBytes(root.resolve("b.txt")), cs));
+
+			// the requested newline is used for every line when it is forced
+			fileManipulator.setForceNewline(true);
+			fileManipulator.search("line").manipulateLines(FileLineOp.PREPEND_TO_LINE, "b ");
+			fileManipulator.saveModifiedFiles(cs);
+
+			expect.setLength(0);
+			for(String line : lines) {
+				expect.append("b a ").append(line).append("\r\n");
+			}
+			Assert.assertEquals(expect.toString(), new String(Files.readAllBytes(root.resolve("a.txt")), cs));
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void saveFileFormatTest() throws IOException {
+		Path root = Files.createTempDirectory("file-manipulator-test");
+		try {
+			String bom = "\uFEFF";
+			Files.write(root.resolve("crlf.txt"), (bom + "first\r\nsecond edit\r\n\r\nlast").getBytes(cs));
+			Files.write(root.resolve("cr.txt"), "first\rsecond edit\r".getBytes(cs));
+			Files.write(root.resolve("mixed.txt"), "first\r\nsecond edit\nthird\r\n".getBytes(cs));
+
+			FileInfo crlf = FileManipulator.readFile(root.resolve("crlf.txt").toFile(), cs);
+			Assert.assertEquals(list("first", "second edit", "", "last"), crlf.getLines());
+			Assert.assertEquals("\r\n", crlf.getFormat().getNewline());
+			Assert.assertFalse(crlf.getFormat().isEndsWithNewline());
+			Assert.assertTrue(crlf.getFormat().hasBom());
+
+			FileManipulator fileManipulator = new FileManipulator(root, null, cs, "\n");
+			fileManipulator.search("edit").manipulateLines(FileLineOp.REPLACE_MATCHING_PORTION, "change");
+			fileManipulator.saveModifiedFiles(cs);
+
+			Assert.assertEquals(bom + "first\r\nsecond change\r\n\r\nlast", new String(Files.readAllBytes(root.resolve("crlf.txt")), cs));
+			Assert.assertEquals("first\rsecond change\r", new String(Files.readAllBytes(root.resolve("cr.txt")), cs));
+			// each line of a file with mixed line terminators keeps its own terminator
+			Assert.assertEquals("first\r\nsecond change\nthird\r\n", new String(Files.readAllBytes(root.resolve("mixed.txt")), cs));
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void saveMixedNewlinesTest() throws IOException {
+		for(LineStorage lineStorage : LineStorage.values()) {
+			Path root = Files.createTempDirectory("file-manipulator-test");
+			try {
+				Files.write(root.resolve("mixed.txt"), "keep\r\nremove\nadd\rtail\nlast".getBytes(cs));
+
+				FileManipulator fileManipulator = new FileManipulator(root, null, cs, "\r", new FileLoadSettings(1, false, lineStorage));
+				fileManipulator.search("remove").manipulateLines(FileLineOp.REMOVE_LINE, "");
+				fileManipulator.search("add").manipulateLines(FileLineOp.ADD_LINE_AFTER, "new");
+				fileManipulator.search("tail").manipulateLines(FileLineOp.APPEND_TO_LINE, "!");
+				fileManipulator.search("keep").manipulateLinesLines(FileLineOp.REPLACE_LINE, list("kept", "inserted"));
+				fileManipulator.search("last").manipulateLines(FileLineOp.ADD_LINE_AFTER, "end");
+				fileManipulator.saveModifiedFiles(cs);
+
+				// edited lines keep their terminators, inserted lines use the most common terminator, and the last line still has no terminator
+				Assert.assertEquals(lineStorage.toString(), "kept\r\ninserted\nadd\rnew\ntail!\nlast\nend",
+						new String(Files.readAllBytes(root.resolve("mixed.txt")), cs));
+
+				// a forced newline replaces every line's terminator
+				fileManipulator.setForceNewline(true);
+				fileManipulator.search("kept").manipulateLines(FileLineOp.APPEND_TO_LINE, "!");
+				fileManipulator.saveModifiedFiles(cs);
+				Assert.assertEquals(lineStorage.toString(), "kept!\rinserted\radd\rnew\rtail!\rlast\rend",
+						new String(Files.readAllBytes(root.resolve("mixed.txt")), cs));
+			} finally {
+				deleteRecursively(root);
+			}
+		}
+	}
+
+
+	@Test
+	public void saveUnchangedFilesTest() throws IOException {
+		Path root = Files.createTempDirectory("file-manipulator-test");
+		try {
+			FileTime oldTime = FileTime.fromMillis(1000000000000L);
+			Path same = root.resolve("same.txt");
+			Path changed = root.resolve("changed.txt");
+			Files.write(same, "\uFEFFabc\r\ndef".getBytes(cs));
+			Files.write(changed, "abc\nabc abc\n".getBytes(cs));
+			Files.setLastModifiedTime(same, oldTime);
+			Files.setLastModifiedTime(changed, oldTime);
+
+			FileManipulator fileManipulator = new FileManipulator(root, null, cs, "\n");
+			ManipulateFileLines search = fileManipulator.search("abc");
+			Assert.assertEquals(2, search.getMatchingSourceCount());
+			search.manipulateLines(FileLineOp.REPLACE_MATCHING_PORTION, "abc");
+			fileManipulator.search("abc abc").manipulateLines(FileLineOp.REPLACE_LINE, "xyz");
+			List<FileInfo> saved = fileManipulator.saveModifiedFiles(cs);
+
+			// the replacement produced identical contents, so the file is not rewritten or reported as saved
+			Assert.assertEquals(1, saved.size());
+			Assert.assertEquals(changed.toFile(), saved.get(0).getFile());
+			Assert.assertEquals(oldTime, Files.getLastModifiedTime(same));
+			Assert.assertEquals("\uFEFFabc\r\ndef", new String(Files.readAllBytes(same), cs));
+			Assert.assertNotEquals(oldTime, Files.getLastModifiedTime(changed));
+			Assert.assertEquals("abc\nxyz\n", new String(Files.readAllBytes(changed), cs));
+			fileManipulator.forEachFile((dir, fileInfo) -> Assert.assertFalse(fileInfo.isLinesModified()));
+
+			// the saved file's checksum is updated, so reverting an edit and then redoing it is not rewritten
+			Files.setLastModifiedTime(changed, oldTime);
+			fileManipulator.search("xyz").manipulateLines(FileLineOp.REPLACE_MATCHING_PORTION, "xyz");
+			Assert.assertEquals(0, fileManipulator.saveModifiedFiles(cs).size());
+			Assert.assertEquals(oldTime, Files.getLastModifiedTime(changed));
+			// the temporary files written for unchanged files are deleted
+			try(Stream<Path> paths = Files.list(root)) {
+				Assert.assertEquals(2, paths.count());
+			}
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	@Test
+	public void compactLinesTest() throws IOException {
+		compactLinesTest(LineStorage.COMPACT);
+		compactLinesTest(LineStorage.OFF_HEAP);
+	}
+
+
+	private void compactLinesTest(LineStorage lineStorage) throws IOException {
+		Path root = Files.createTempDirectory("file-manipulator-test");
+		try {
+			Files.write(root.resolve("a.txt"), "\uFEFFalpha\r\nbeta edit\r\n\r\ngamma edit".getBytes(cs));
+			Files.write(root.resolve("b.txt"), "one\ntwo edit\nthree\n".getBytes(cs));
+			Files.write(root.resolve("c.txt"), "\u00E9dit \u00E9\rno match\r".getBytes(cs));
+			List<String> manyLines = new ArrayList<>();
+			for(int i = 0; i < 1000; i++) {
+				manyLines.add("line " + i);
+			}
+			Files.write(root.resolve("many.txt"), manyLines, cs);
+
+			FileManipulator strings = new FileManipulator(root, null, cs, "\n", new FileLoadSettings(1, false, LineStorage.STRINGS));
+			FileManipulator compact = new FileManipulator(root, null, cs, "\n", new FileLoadSettings(2, false, lineStorage));
+			Map<File, FileInfo> stringFiles = new HashMap<>();
+			strings.forEachFile((file, fileInfo) -> stringFiles.put(file, fileInfo));
+			compact.forEachFile((file, fileInfo) -> {
+				FileInfo expect = stringFiles.get(file);
+				Assert.assertEquals(expect.getLines(), fileInfo.getLines());
+				Assert.assertEquals(expect.getFormat().getNewline(), fileInfo.getFormat().getNewline());
+				Assert.assertEquals(expect.getFormat().isEndsWithNewline(), fileInfo.getFormat().isEndsWithNewline());
+				Assert.assertEquals(expect.getFormat().hasBom(), fileInfo.getFormat().hasBom());
+				Assert.assertEquals(expect.getContentHash(), fileInfo.getContentHash());
+			});
+
+			for(String searchStr : list("edit", "\u00E9", "a", "gamma edit", "missing")) {
+				ManipulateFileLines expect = strings.search(searchStr);
+				ManipulateFileLines actual = compact.search(searchStr);
+				Assert.assertEquals(expect.getMatchingSourceCount(), actual.getMatchingSourceCount());
+				Assert.assertEquals(expect.getMatchingLineCount(), actual.getMatchingLineCount());
+			}
+
+			compact.search("two edit").manipulateLines(FileLineOp.REPLACE_LINE, "2");
+			compact.search("one").manipulateLines(FileLineOp.ADD_LINE_AFTER, "1.5");
+			compact.search("three").manipulateLines(FileLineOp.REMOVE_LINE, "");
+			compact.search("gamma").manipulateLines(FileLineOp.REPLACE_MATCHING_PORTION, "delta");
+			// edited files are searched line by line
+			Assert.assertEquals(1, compact.search("1.5").getMatchingSourceCount());
+			compact.saveModifiedFiles(cs);
+
+			Assert.assertEquals("\uFEFFalpha\r\nbeta edit\r\n\r\ndelta edit", new String(Files.readAllBytes(root.resolve("a.txt")), cs));
+			Assert.assertEquals("one\n1.5\n2\n", new String(Files.readAllBytes(root.resolve("b.txt")), cs));
+			Assert.assertEquals("\u00E9dit \u00E9\rno match\r", new String(Files.readAllBytes(root.resolve("c.txt")), cs));
+
+			// lines which are not edited keep referencing the file's bytes
+			FileInfo[] many = { null };
+			compact.forEachFile((file, fileInfo) -> { if(file.getName().equals("many.txt")) many[0] = fileInfo; });
+			CompactLines manyCompact = (CompactLines)many[0].getLines();
+			Assert.assertEquals(lineStorage == LineStorage.OFF_HEAP, manyCompact.isDirect());
+			compact.search("line 500").manipulateLines(FileLineOp.ADD_LINE_AFTER, "inserted");
+			Assert.assertEquals(1001, manyCompact.size());
+			Assert.assertEquals(1, manyCompact.getEditCount());
+			compact.search("line 7").manipulateLines(FileLineOp.REMOVE_LINE, "");
+			compact.search("inserted").manipulateLines(FileLineOp.REPLACE_MATCHING_PORTION, "replaced");
+			Assert.assertEquals(890, manyCompact.size());
+			Assert.assertEquals(1, manyCompact.getEditCount());
+			compact.saveModifiedFiles(cs);
+			List<String> savedLines = Files.readAllLines(root.resolve("many.txt"), cs);
+			Assert.assertEquals(manyCompact, savedLines);
+			Assert.assertEquals("replaced", savedLines.get(490));
+		} finally {
+			deleteRecursively(root);
+		}
+	}
+
+
+	/** Create a temporary folder containing 4 sub-folders of 10 text files each and a '.bin' file
+	 */
+	static Path createTestFolder() throws IOException {
+		Path root = Files.createTempDirectory("file-manipulator-test");
+		for(int i = 0; i < 4; i++) {
+			Path dir = Files.createDirectories(root.resolve("dir-" + i).resolve("sub"));
+			for(int k = 0; k < 10; k++) {
+				String name = "file-" + i + "-" + k + ".txt";
+				Files.write(dir.resolve(name), list("line 1 of " + name, "line 2"), StandardCharsets.UTF_8);
+			}
+		}
+		Files.write(root.resolve("data.bin"), new byte[] { 0, 1, 2 });
+		return root;
+	}
+
+
+	static void deleteRecursively(Path root) throws IOException {
+		try(Stream<Path> paths = Files.walk(root)) {
+			for(Path path : (Iterable<Path>)paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+
 	@SafeVarargs
 	static final <T> ArrayList<T> list(T... ts) {
 		ArrayList<T> list = new ArrayList<>();
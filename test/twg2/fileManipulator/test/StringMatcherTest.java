@@ -0,0 +1,130 @@
+package twg2.fileManipulator.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import twg2.collections.primitiveCollections.IntArrayList;
+import twg2.fileManipulator.AhoCorasickMatcher;
+import twg2.fileManipulator.HorspoolMatcher;
+import twg2.fileManipulator.IndexOfMatcher;
+import twg2.fileManipulator.RegexMatcher;
+import twg2.fileManipulator.StringMatcher;
+
+/**
+ * @author TeamworkGuy2
+ * @since 2026-10-18
+ */
+public class StringMatcherTest {
+
+	@Test
+	public void matcherSelectionTest() {
+		Assert.assertTrue(StringMatcher.of("short") instanceof IndexOfMatcher);
+		Assert.assertTrue(StringMatcher.of("a-much-longer-search-string") instanceof HorspoolMatcher);
+	}
+
+
+	@Test
+	public void horspoolMatcherTest() {
+		// a small alphabet produces lots of partial matches, '\u0161' and '\u0262' share a low byte with 'a' and 'b'
+		char[] alphabet = { 'a', 'b', 'c', '\u0161', '\u0262' };
+		Random rand = new Random(42);
+
+		for(int t = 0; t < 2000; t++) {
+			String search = randomString(rand, alphabet, 1 + rand.nextInt(6));
+			String str = randomString(rand, alphabet, rand.nextInt(60));
+			HorspoolMatcher matcher = new HorspoolMatcher(search);
+
+			for(int from = 0; from <= str.length(); from += 7) {
+				Assert.assertEquals("'" + search + "' in '" + str + "' from " + from, str.indexOf(search, from), matcher.indexOf(str, from));
+			}
+			Assert.assertEquals(str.contains(search), matcher.test(str));
+			Assert.assertEquals(str.replace(search, "#"), matcher.replaceAll(str, "#"));
+		}
+	}
+
+
+	@Test
+	public void regexMatcherTest() {
+		RegexMatcher matcher = new RegexMatcher("get(\\w+)\\(\\)");
+		Assert.assertTrue(matcher.test("int a = getCount();"));
+		Assert.assertFalse(matcher.test("int a = count;"));
+		Assert.assertEquals(12, matcher.indexOf("getA(); b = getB();", 5));
+		Assert.assertEquals("int a = Count(), b = Size();", matcher.replaceAll("int a = getCount(), b = getSize();", "$1()"));
+		Assert.assertNull(matcher.getLiteral());
+	}
+
+
+	@Test
+	public void ahoCorasickMatcherTest() {
+		char[] alphabet = { 'a', 'b', 'c', '\u0161' };
+		Random rand = new Random(7);
+
+		for(int t = 0; t < 2000; t++) {
+			List<String> patterns = new ArrayList<>();
+			List<String> replacements = new ArrayList<>();
+			for(int i = 0, count = 1 + rand.nextInt(5); i < count; i++) {
+				patterns.add(randomString(rand, alphabet, 1 + rand.nextInt(4)));
+				replacements.add("<" + i + ">");
+			}
+			String str = randomString(rand, alphabet, rand.nextInt(40));
+			AhoCorasickMatcher matcher = new AhoCorasickMatcher(patterns, replacements);
+			String msg = patterns + " in '" + str + "'";
+
+			int expectIdx = -1;
+			for(String pattern : patterns) {
+				int idx = str.indexOf(pattern);
+				if(idx > -1 && (expectIdx < 0 || idx < expectIdx)) {
+					expectIdx = idx;
+				}
+			}
+			Assert.assertEquals(msg, expectIdx, matcher.indexOf(str, 0));
+			Assert.assertEquals(msg, expectIdx > -1, matcher.test(str));
+
+			boolean[] found = new boolean[patterns.size()];
+			matcher.findPatterns(str, found, new IntArrayList());
+			for(int i = 0; i < patterns.size(); i++) {
+				Assert.assertEquals(msg, str.contains(patterns.get(i)) && patterns.indexOf(patterns.get(i)) == i, found[i]);
+			}
+
+			Assert.assertEquals(msg, naiveReplaceAll(str, patterns, replacements), matcher.replaceAll(str));
+		}
+	}
+
+
+	/** Replace the leftmost-longest non-overlapping matches, preferring the first of any duplicate patterns
+	 */
+	private static String naiveReplaceAll(String str, List<String> patterns, List<String> replacements) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < str.length(); ) {
+			int longest = -1;
+			for(int k = 0; k < patterns.size(); k++) {
+				if(str.startsWith(patterns.get(k), i) && (longest < 0 || patterns.get(k).length() > patterns.get(longest).length())) {
+					longest = k;
+				}
+			}
+			if(longest > -1) {
+				sb.append(replacements.get(longest));
+				i += patterns.get(longest).length();
+			}
+			else {
+				sb.append(str.charAt(i));
+				i++;
+			}
+		}
+		return sb.toString();
+	}
+
+
+	private static String randomString(Random rand, char[] alphabet, int len) {
+		StringBuilder sb = new StringBuilder(len);
+		for(int i = 0; i < len; i++) {
+			sb.append(alphabet[rand.nextInt(alphabet.length)]);
+		}
+		return sb.toString();
+	}
+
+}